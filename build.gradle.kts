@@ -1,6 +1,7 @@
 plugins {
     id("java")
     application
+    id("me.champeau.jmh") version "0.7.2"
 }
 
 group = "tv.banko"
@@ -15,11 +16,15 @@ dependencies {
     implementation("com.github.twitch4j:twitch4j:1.20.0")
     implementation("com.google.code.gson:gson:2.8.9")
     implementation("ch.qos.logback:logback-classic:1.4.12")
+
+    testImplementation(platform("org.junit:junit-bom:5.10.2"))
+    testImplementation("org.junit.jupiter:junit-jupiter")
+    testRuntimeOnly("org.junit.platform:junit-platform-launcher")
 }
 
 java {
     toolchain {
-        languageVersion.set(JavaLanguageVersion.of(17))
+        languageVersion.set(JavaLanguageVersion.of(21))
     }
 }
 
@@ -40,7 +45,7 @@ tasks {
 
     withType<JavaCompile> {
         options.encoding = "UTF-8"
-        options.release.set(17)
+        options.release.set(21)
     }
 }
 
@@ -48,6 +53,16 @@ tasks.test {
     useJUnitPlatform()
 }
 
+jmh {
+    profilers.add("gc")
+    resultFormat.set("JSON")
+    resultsFile.set(layout.buildDirectory.file("results/jmh/results.json"))
+
+    if (project.hasProperty("jmhIncludes")) {
+        includes.add(project.property("jmhIncludes").toString())
+    }
+}
+
 application {
     mainClass.set("tv.banko.songrequest.Main")
 }
\ No newline at end of file
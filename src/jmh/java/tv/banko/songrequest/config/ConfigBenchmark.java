@@ -0,0 +1,59 @@
+package tv.banko.songrequest.config;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ConfigBenchmark {
+
+    private Path directory;
+    private Config config;
+
+    @Setup
+    public void setup() throws IOException {
+        this.directory = Files.createTempDirectory("songrequest-config");
+        this.config = new Config(new File(this.directory.toFile(), "config.json"));
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(this.directory.resolve("config.json"));
+        Files.deleteIfExists(this.directory);
+    }
+
+    @Benchmark
+    public String spotifyAccessToken() {
+        return this.config.getSpotifyAccessToken();
+    }
+
+    @Benchmark
+    public long spotifyExpiresAt() {
+        return this.config.getSpotifyExpiresAt();
+    }
+
+    /**
+     * Resolve a reward title against all configured rewards, the last one matching.
+     */
+    @Benchmark
+    public boolean rewardTitleLookup() {
+        String title = "Letzte 10s spielen";
+
+        return title.equals(this.config.getTwitchRedemptionAddSong())
+                || title.equals(this.config.getTwitchRedemptionSkipSong())
+                || title.equals(this.config.getTwitchRedemptionPlayLastSong())
+                || title.equals(this.config.getTwitchRedemptionPausePlayback())
+                || title.equals(this.config.getTwitchRedemptionStartPlayback())
+                || title.equals(this.config.getTwitchRedemptionSkipTenSeconds())
+                || title.equals(this.config.getTwitchRedemptionPlayLastTenSeconds());
+    }
+}
@@ -0,0 +1,95 @@
+package tv.banko.songrequest.spotify;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the streaming decoders with parsing the whole response into a json tree,
+ * as the responses were decoded before.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SpotifyResponseDecodingBenchmark {
+
+    private byte[] queue;
+    private byte[] search;
+
+    @Setup
+    public void setup() throws IOException {
+        this.queue = readFixture("queue.json");
+        this.search = readFixture("search.json");
+    }
+
+    @Benchmark
+    public List<String> queueTree() {
+        JsonObject object = JsonParser.parseString(new String(this.queue, StandardCharsets.UTF_8)).getAsJsonObject();
+        JsonArray queue = object.getAsJsonArray("queue");
+        List<String> list = new ArrayList<>();
+
+        for (int queueId = 0; queueId < Math.min(queue.size(), 5); queueId++) {
+            JsonObject queueObject = queue.get(queueId).getAsJsonObject();
+            List<String> artists = new ArrayList<>();
+
+            for (JsonElement artist : queueObject.getAsJsonArray("artists")) {
+                artists.add(artist.getAsJsonObject().get("name").getAsString());
+            }
+
+            list.add(queueObject.get("name") + " - " + String.join(", ", artists));
+        }
+
+        return list;
+    }
+
+    @Benchmark
+    public List<String> queueStreaming() throws IOException {
+        try (Reader reader = reader(this.queue)) {
+            return SpotifyResponseDecoder.decodeQueue(reader, 5);
+        }
+    }
+
+    @Benchmark
+    public String searchTree() {
+        JsonObject object = JsonParser.parseString(new String(this.search, StandardCharsets.UTF_8)).getAsJsonObject();
+        JsonArray items = object.getAsJsonObject("tracks").getAsJsonArray("items");
+        return "spotify:track:" + items.get(0).getAsJsonObject().get("id").getAsString();
+    }
+
+    @Benchmark
+    public TrackInfo searchStreaming() throws IOException {
+        try (Reader reader = reader(this.search)) {
+            return SpotifyResponseDecoder.decodeSearch(reader);
+        }
+    }
+
+    private static Reader reader(byte[] data) {
+        return new InputStreamReader(new ByteArrayInputStream(data), StandardCharsets.UTF_8);
+    }
+
+    static byte[] readFixture(String name) throws IOException {
+        try (InputStream stream = SpotifyResponseDecodingBenchmark.class.getClassLoader()
+                .getResourceAsStream("fixtures/" + name)) {
+            if (stream == null) {
+                throw new IOException("Fixture '" + name + "' not existing");
+            }
+
+            return stream.readAllBytes();
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package tv.banko.songrequest.spotify;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TrackIdBenchmark {
+
+    @Param({
+            "spotify:track:4cOdK2wGLETKBW3PvgPWqT",
+            "https://open.spotify.com/track/4cOdK2wGLETKBW3PvgPWqT?si=1a2b3c4d5e6f4a7b",
+            "never gonna give you up rick astley"
+    })
+    public String query;
+
+    @Benchmark
+    public String getTrackId() {
+        return Spotify.getTrackId(this.query);
+    }
+
+    @Benchmark
+    public String normalizeQuery() {
+        return SpotifyAPI.normalizeQuery(this.query);
+    }
+}
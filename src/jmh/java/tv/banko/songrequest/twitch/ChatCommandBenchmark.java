@@ -0,0 +1,26 @@
+package tv.banko.songrequest.twitch;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ChatCommandBenchmark {
+
+    @Param({
+            "!queue",
+            "!sr-spotify AQDx7c2Tn0wPq4ZkR8yVb1LmH3sJf6GdE9uWiOaX5tCcNzYr",
+            "what a great song, who is the artist? PogChamp"
+    })
+    public String message;
+
+    @Benchmark
+    public ChatCommand parse() {
+        return ChatCommand.parse(this.message);
+    }
+}
@@ -0,0 +1,43 @@
+package tv.banko.songrequest.twitch.reward;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Routes a redemption by its reward id, to compare with resolving the title in {@code ConfigBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RewardDispatcherBenchmark {
+
+    private RewardDispatcher dispatcher;
+    private String rewardId;
+
+    @Setup
+    public void setup() {
+        this.dispatcher = new RewardDispatcher();
+        Map<String, RewardType> routes = new HashMap<>();
+
+        for (RewardType type : RewardType.values()) {
+            this.dispatcher.register(type, redemption -> CompletableFuture.completedFuture(null));
+            this.rewardId = UUID.randomUUID().toString();
+            routes.put(this.rewardId, type);
+        }
+
+        this.dispatcher.setRoutes(routes);
+    }
+
+    @Benchmark
+    public RewardHandler dispatch() {
+        return this.dispatcher.getHandler(this.rewardId);
+    }
+}
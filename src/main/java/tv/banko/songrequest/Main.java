@@ -5,7 +5,10 @@ import java.util.concurrent.TimeUnit;
 public class Main {
 
     public static void main(String[] args) {
-        new SongRequest();
+        SongRequest songRequest = new SongRequest();
+        Runtime.getRuntime().addShutdownHook(new Thread(songRequest::shutdown));
+        songRequest.start().join();
+
         new Thread(() -> {
             while (true) {
                 try {
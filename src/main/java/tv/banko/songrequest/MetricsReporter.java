@@ -0,0 +1,136 @@
+package tv.banko.songrequest;
+
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import tv.banko.songrequest.spotify.SpotifyAPI;
+import tv.banko.songrequest.spotify.SpotifyRequestScheduler;
+import tv.banko.songrequest.twitch.ChatSender;
+import tv.banko.songrequest.twitch.CommandCoalescer;
+import tv.banko.songrequest.twitch.RedemptionTransport;
+import tv.banko.songrequest.twitch.TransportMonitor;
+import tv.banko.songrequest.twitch.Twitch;
+import tv.banko.songrequest.twitch.reward.RedemptionDeduplicator;
+import tv.banko.songrequest.twitch.reward.RedemptionJournal;
+import tv.banko.songrequest.twitch.reward.RedemptionQueue;
+import tv.banko.songrequest.twitch.reward.RedemptionStatusBatcher;
+import tv.banko.songrequest.util.CircuitBreaker;
+
+import java.util.StringJoiner;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Logs the metrics of the HTTP clients, the Spotify requests and the redemption pipeline periodically,
+ * so they can be followed in the log or collected from it.
+ */
+public class MetricsReporter {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger("tv.banko.songrequest.metrics");
+
+    private static final long REPORT_INTERVAL_MINUTES = 5;
+
+    private final SongRequest request;
+
+    public MetricsReporter(@NotNull SongRequest request) {
+        this.request = request;
+    }
+
+    /**
+     * Start logging the metrics periodically.
+     *
+     * @param scheduler The scheduler running the reports.
+     */
+    public void start(@NotNull ScheduledExecutorService scheduler) {
+        scheduler.scheduleWithFixedDelay(this::report, REPORT_INTERVAL_MINUTES, REPORT_INTERVAL_MINUTES,
+                TimeUnit.MINUTES);
+    }
+
+    /**
+     * Log the current metrics.
+     */
+    public void report() {
+        if (!LOGGER.isInfoEnabled()) {
+            return;
+        }
+
+        try {
+            this.reportHttp();
+            this.reportSpotify();
+            this.reportTwitch();
+        } catch (RuntimeException e) {
+            // a failed report must not cancel the following ones
+            LOGGER.warn("Reporting the metrics failed", e);
+        }
+    }
+
+    private void reportHttp() {
+        StringJoiner circuits = new StringJoiner(", ");
+
+        for (CircuitBreaker breaker : this.request.getCircuitBreakers().getAll()) {
+            if (breaker.getState() != CircuitBreaker.State.CLOSED || breaker.getRejected() > 0) {
+                circuits.add(breaker.getName() + " " + breaker.getState() + " rejected=" + breaker.getRejected());
+            }
+        }
+
+        LOGGER.info("http: retries={} circuits=[{}]", this.request.getRetryPolicy().getRetries(), circuits);
+    }
+
+    private void reportSpotify() {
+        SpotifyAPI api = this.request.getSpotify().getAPI();
+        SpotifyRequestScheduler scheduler = api.getRequestScheduler();
+
+        LOGGER.info("spotify: queued={} throttleMs={} throttledMs={} rateLimited={} searchCache={}/{} trackCache={}/{}",
+                scheduler.getQueueDepth(), scheduler.getThrottleMillis(), scheduler.getThrottledMillis(),
+                scheduler.getRateLimitedResponses(), api.getSearchCache().getHits(), api.getSearchCache().getMisses(),
+                api.getTrackCache().getHits(), api.getTrackCache().getMisses());
+    }
+
+    private void reportTwitch() {
+        Twitch twitch = this.request.getTwitch();
+
+        RedemptionDeduplicator deduplicator = twitch.getRedemptionDeduplicator();
+        RedemptionQueue queue = twitch.getRedemptionQueue();
+
+        LOGGER.info("redemptions: received={} duplicates={} duplicateRate={} remembered={} queued={} deferred={} "
+                        + "running={} canceled={} avgWaitMs={} maxWaitMs={}", deduplicator.getReceived(),
+                deduplicator.getDuplicates(), String.format("%.4f", deduplicator.getDuplicateRate()),
+                deduplicator.getSize(), queue.getDepth(), queue.getDeferred(), queue.getRunning(), queue.getCanceled(),
+                queue.getAverageWaitMillis(), queue.getMaxWaitMillis());
+
+        RedemptionStatusBatcher statuses = twitch.getRedemptionStatusBatcher();
+
+        LOGGER.info("statuses: pending={} requests={} calls={} retries={} batchRetries={} failures={}",
+                statuses.getPending(), statuses.getRequests(), statuses.getCalls(), statuses.getRetries(),
+                statuses.getBatchRetries(), statuses.getFailures());
+
+        RedemptionJournal journal = twitch.getRedemptionJournal();
+
+        LOGGER.info("journal: failed={} pending={} dropped={} appended={} commits={} avgCommitMs={} maxCommitMs={}",
+                journal.isFailed(), journal.getPending(), journal.getDropped(), journal.getAppended(), journal.getCommits(),
+                TimeUnit.NANOSECONDS.toMillis(journal.getAverageCommitNanos()),
+                TimeUnit.NANOSECONDS.toMillis(journal.getMaxCommitNanos()));
+
+        CommandCoalescer queueCommand = twitch.getQueueCommand();
+
+        LOGGER.info("queue command: requests={} replies={}", queueCommand.getRequests(), queueCommand.getReplies());
+
+        ChatSender chat = twitch.getChatSender();
+
+        LOGGER.info("chat: queued={} sent={} merged={} dropped={} avgLatencyMs={} maxLatencyMs={}",
+                chat.getQueueDepth(), chat.getSent(), chat.getMerged(), chat.getDropped(),
+                chat.getAverageLatencyMillis(), chat.getMaxLatencyMillis());
+
+        TransportMonitor monitor = twitch.getTransportMonitor();
+        StringJoiner deliveries = new StringJoiner(", ");
+
+        for (RedemptionTransport transport : RedemptionTransport.values()) {
+            deliveries.add(transport.name().toLowerCase() + " " + monitor.getDeliveries(transport)
+                    + " avgMs=" + monitor.getAverageLatencyMillis(transport)
+                    + " maxMs=" + monitor.getMaxLatencyMillis(transport));
+        }
+
+        LOGGER.info("transport: state={} reconnects={} sessionChanges={} deliveries=[{}]", monitor.getState(),
+                monitor.getReconnects(), monitor.getSessionChanges(), deliveries);
+    }
+}
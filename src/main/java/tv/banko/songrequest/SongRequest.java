@@ -1,25 +1,131 @@
 package tv.banko.songrequest;
 
+import okhttp3.OkHttpClient;
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import tv.banko.songrequest.auth.CredentialManager;
 import tv.banko.songrequest.config.Config;
 import tv.banko.songrequest.spotify.Spotify;
 import tv.banko.songrequest.twitch.Twitch;
+import tv.banko.songrequest.util.*;
+
+import java.util.concurrent.*;
 
 public class SongRequest {
 
+    private static final Logger LOGGER = LoggerFactory.getLogger(SongRequest.class);
+
+    private static final long SHUTDOWN_TIMEOUT_MILLIS = TimeUnit.SECONDS.toMillis(10);
+
+    private final ScheduledExecutorService scheduler;
+    private final ExecutorService executor;
+    private final OkHttpClient httpClient;
     private final Config config;
+    private final RetryPolicy retryPolicy;
+    private final CircuitBreakerRegistry circuitBreakers;
     private final Spotify spotify;
     private final Twitch twitch;
+    private final CredentialManager credentialManager;
+    private final MetricsReporter metricsReporter;
 
     public SongRequest() {
-        this.config = new Config();
+        this(new Config());
+    }
+
+    /**
+     * @param config The config, e.g. loaded from a different file.
+     */
+    public SongRequest(@NotNull Config config) {
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(new NamedThreadFactory("songrequest-scheduler"));
+        this.executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("songrequest-worker-", 1).factory());
+        this.httpClient = HTTPClientFactory.create(this.executor);
+        this.config = config;
+        this.retryPolicy = new RetryPolicy(this.scheduler, () -> this.config.getSnapshot().http());
+        this.circuitBreakers = new CircuitBreakerRegistry(() -> this.config.getSnapshot().http());
         this.spotify = new Spotify(this);
         this.twitch = new Twitch(this);
+        this.credentialManager = new CredentialManager(this);
+        this.metricsReporter = new MetricsReporter(this);
+    }
+
+    /**
+     * Start Spotify and Twitch in parallel while connecting to their APIs ahead of the first request,
+     * followed by the token renewal, the config watcher and the metrics report.
+     *
+     * @return A completable future which completes when the application handles redemptions.
+     */
+    public CompletableFuture<Void> start() {
+        PhaseTimer timer = new PhaseTimer();
+
+        CompletableFuture<Void> warmUp = timer.time("http warm-up", () -> CompletableFuture.allOf(
+                HTTPClientFactory.warmUp(this.httpClient, "https://api.spotify.com/"),
+                HTTPClientFactory.warmUp(this.httpClient, "https://id.twitch.tv/")));
+
+        return CompletableFuture.allOf(warmUp, this.spotify.start(timer), this.twitch.start(timer)).thenRun(() -> {
+            this.credentialManager.start();
+            this.config.startWatching();
+            this.metricsReporter.start(this.scheduler);
+
+            LOGGER.info("Started in {} ms ({})", timer.getElapsedMillis(), timer);
+        });
+    }
+
+    /**
+     * Flush pending work before the application stops.
+     */
+    public void shutdown() {
+        this.metricsReporter.report();
+        this.spotify.shutdown(SHUTDOWN_TIMEOUT_MILLIS);
+        this.twitch.shutdown(SHUTDOWN_TIMEOUT_MILLIS);
+        this.config.shutdown();
+    }
+
+    public ScheduledExecutorService getScheduler() {
+        return scheduler;
+    }
+
+    /**
+     * Get the executor running the redemption pipelines and every other asynchronous continuation.
+     * Each task runs on its own virtual thread, so blocking Helix and Spotify calls do not occupy a platform thread.
+     *
+     * @return The executor.
+     */
+    public ExecutorService getExecutor() {
+        return executor;
+    }
+
+    /**
+     * Get the HTTP client shared by the Spotify and Twitch APIs.
+     *
+     * @return The client.
+     */
+    public OkHttpClient getHttpClient() {
+        return httpClient;
     }
 
     public Config getConfig() {
         return config;
     }
 
+    /**
+     * Get the retry policy of the idempotent http calls.
+     *
+     * @return The retry policy.
+     */
+    public RetryPolicy getRetryPolicy() {
+        return retryPolicy;
+    }
+
+    /**
+     * Get the circuit breakers of the http endpoints.
+     *
+     * @return The circuit breakers.
+     */
+    public CircuitBreakerRegistry getCircuitBreakers() {
+        return circuitBreakers;
+    }
+
     public Spotify getSpotify() {
         return spotify;
     }
@@ -27,4 +133,8 @@ public class SongRequest {
     public Twitch getTwitch() {
         return twitch;
     }
+
+    public CredentialManager getCredentialManager() {
+        return credentialManager;
+    }
 }
@@ -0,0 +1,146 @@
+package tv.banko.songrequest.auth;
+
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import tv.banko.songrequest.SongRequest;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+public class CredentialManager {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CredentialManager.class);
+
+    private static final long RENEW_AHEAD_MILLIS = TimeUnit.MINUTES.toMillis(5);
+    private static final long MAX_JITTER_MILLIS = TimeUnit.SECONDS.toMillis(30);
+    private static final long MIN_DELAY_MILLIS = TimeUnit.SECONDS.toMillis(1);
+    private static final long RETRY_BASE_MILLIS = TimeUnit.SECONDS.toMillis(2);
+    private static final long RETRY_MAX_MILLIS = TimeUnit.MINUTES.toMillis(5);
+
+    private final SongRequest request;
+    private final ScheduledExecutorService scheduler;
+
+    public CredentialManager(@NotNull SongRequest request) {
+        this.request = request;
+        this.scheduler = request.getScheduler();
+    }
+
+    /**
+     * Start renewing the Spotify and Twitch tokens ahead of their expiration.
+     * A token without a refresh token is not renewed until a refresh token is configured.
+     */
+    public void start() {
+        Renewal spotify = new Renewal("Spotify", () -> this.request.getSpotify().getAPI().renewAccessToken(),
+                () -> this.request.getSpotify().getAPI().getAccessTokenExpiresAt(),
+                () -> !this.request.getConfig().getSpotifyRefreshToken().isEmpty());
+        Renewal twitch = new Renewal("Twitch", () -> this.request.getTwitch().renewCredentials(),
+                () -> this.request.getConfig().getTwitchExpiresAt(),
+                () -> !this.request.getConfig().getTwitchRefreshToken().isEmpty());
+
+        spotify.schedule();
+        twitch.schedule();
+
+        // a refresh token or client entered into the config file takes effect right away
+        this.request.getConfig().addListener(snapshot -> List.of(snapshot.spotify().refreshToken(),
+                snapshot.spotify().clientId(), snapshot.spotify().clientSecret()), snapshot -> spotify.schedule(0));
+        this.request.getConfig().addListener(snapshot -> List.of(snapshot.twitch().refreshToken(),
+                snapshot.twitch().clientId(), snapshot.twitch().clientSecret()), snapshot -> twitch.schedule(0));
+    }
+
+    /**
+     * Get a random jitter, so renewals do not line up with each other.
+     *
+     * @return The jitter in milliseconds.
+     */
+    private static long jitter() {
+        return ThreadLocalRandom.current().nextLong(MAX_JITTER_MILLIS);
+    }
+
+    private class Renewal {
+
+        private final String name;
+        private final Supplier<CompletableFuture<?>> renew;
+        private final LongSupplier expiresAt;
+        private final BooleanSupplier connected;
+
+        private int failures;
+        private boolean paused;
+        private ScheduledFuture<?> next;
+
+        private Renewal(@NotNull String name, @NotNull Supplier<CompletableFuture<?>> renew,
+                        @NotNull LongSupplier expiresAt, @NotNull BooleanSupplier connected) {
+            this.name = name;
+            this.renew = renew;
+            this.expiresAt = expiresAt;
+            this.connected = connected;
+        }
+
+        /**
+         * Schedule the next renewal shortly before the current token expires.
+         */
+        private void schedule() {
+            long delay = this.expiresAt.getAsLong() - System.currentTimeMillis() - RENEW_AHEAD_MILLIS - jitter();
+            this.schedule(Math.max(delay, MIN_DELAY_MILLIS));
+        }
+
+        /**
+         * Schedule the next renewal, replacing the one scheduled before.
+         * Nothing is scheduled while there is no refresh token.
+         *
+         * @param delay The delay in milliseconds.
+         */
+        private synchronized void schedule(long delay) {
+            if (this.next != null) {
+                this.next.cancel(false);
+                this.next = null;
+            }
+
+            if (!this.connected.getAsBoolean()) {
+                if (!this.paused) {
+                    this.paused = true;
+                    LOGGER.info("{} is not connected; its token is renewed once a refresh token is configured",
+                            this.name);
+                }
+                return;
+            }
+
+            this.paused = false;
+
+            LOGGER.debug("Renewing {} token in {} ms", this.name, delay);
+            this.next = scheduler.schedule(this::run, delay, TimeUnit.MILLISECONDS);
+        }
+
+        private void run() {
+            CompletableFuture<?> future;
+
+            try {
+                future = this.renew.get();
+            } catch (Exception e) {
+                future = CompletableFuture.failedFuture(e);
+            }
+
+            future.whenComplete((o, throwable) -> {
+                if (throwable == null) {
+                    this.failures = 0;
+                    LOGGER.info("Renewed {} token", this.name);
+                    this.schedule();
+                    return;
+                }
+
+                this.failures++;
+                long backoff = Math.min(RETRY_MAX_MILLIS, RETRY_BASE_MILLIS << Math.min(this.failures, 16));
+                LOGGER.warn("Renewing {} token failed ({} attempts), retrying in {} ms", this.name,
+                        this.failures, backoff, throwable);
+                this.schedule(backoff + jitter() / 10);
+            });
+        }
+    }
+}
@@ -5,25 +5,48 @@ import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.io.*;
 import java.nio.charset.StandardCharsets;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Optional;
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 public class Config {
 
+    private static final Logger LOGGER = LoggerFactory.getLogger(Config.class);
+
     private final File file;
+    private final ConfigPersister persister;
+    private final List<Listener<?>> listeners;
+    private final Set<String> unsaved;
     private JsonObject object;
+    private JsonObject disk;
+    private volatile ConfigSnapshot snapshot;
 
     public Config() {
-        this.file = new File("config/config.json");
+        this(new File("config/config.json"));
+    }
+
+    /**
+     * Load the config from a specific file.
+     * The file is created from the bundled default config when it does not exist yet.
+     *
+     * @param file The config file.
+     */
+    public Config(@NotNull File file) {
+        this.file = file;
+        this.persister = new ConfigPersister(file.toPath(), this::onWritten);
+        this.listeners = new CopyOnWriteArrayList<>();
+        this.unsaved = new HashSet<>();
 
         if (!file.exists()) {
 
-            File dir = new File("config");
+            File dir = file.getAbsoluteFile().getParentFile();
 
             if (!dir.exists()) {
                 dir.mkdirs();
@@ -43,6 +66,8 @@ public class Config {
                     outputStream.close();
 
                     this.object = JsonParser.parseString(data).getAsJsonObject();
+                    this.disk = this.object;
+                    this.snapshot = ConfigSnapshot.fromJson(this.object);
                 } catch (Exception e) {
                     throw new RuntimeException(e);
                 }
@@ -54,20 +79,109 @@ public class Config {
 
         try (FileInputStream stream = new FileInputStream(file)) {
             this.object = JsonParser.parseString(new String(stream.readAllBytes())).getAsJsonObject();
+            this.disk = this.object;
+            this.snapshot = ConfigSnapshot.fromJson(this.object);
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
     }
 
+    /**
+     * Start reloading the config when the file is changed outside the application.
+     */
+    public void startWatching() {
+        new ConfigWatcher(this, this.file.toPath()).start();
+    }
+
+    /**
+     * Listen for changes of a specific part of the config made outside the application.
+     * The listener is only called when the selected value differs between the previous and the reloaded snapshot.
+     * Changes made through {@link #setValue(String, String)} are not reported, since they come from the subsystems themselves.
+     *
+     * @param selector The function selecting the watched value from a snapshot.
+     * @param listener The listener receiving the new snapshot.
+     * @param <T>      The type of the watched value.
+     */
+    public <T> void addListener(@NotNull Function<ConfigSnapshot, T> selector, @NotNull Consumer<ConfigSnapshot> listener) {
+        this.listeners.add(new Listener<>(selector, listener));
+    }
+
+    /**
+     * Reload the config from the file and publish it when it was changed outside the application.
+     * Only the values changed in the file since it was last read or written are applied to the current config;
+     * values set by the application which were not written yet are kept, as are their pending writes,
+     * so a rotated token is never replaced by the outdated one from the file.
+     */
+    public void reload() {
+        JsonObject loaded;
+
+        try (FileInputStream stream = new FileInputStream(this.file)) {
+            loaded = JsonParser.parseString(new String(stream.readAllBytes(), StandardCharsets.UTF_8)).getAsJsonObject();
+        } catch (IOException | RuntimeException e) {
+            LOGGER.warn("Reloading the config failed; keeping the current values", e);
+            return;
+        }
+
+        ConfigSnapshot previous;
+        ConfigSnapshot current;
+
+        synchronized (this) {
+            JsonObject disk = this.disk;
+            this.disk = loaded;
+
+            if (loaded.equals(disk) || loaded.equals(this.object)) {
+                return;
+            }
+
+            JsonObject merged = this.object.deepCopy();
+            Map<String, JsonElement> changes = new LinkedHashMap<>();
+            collectChanges("", disk, loaded, changes);
+
+            changes.forEach((key, value) -> {
+                if (this.isUnsaved(key)) {
+                    LOGGER.warn("Ignoring the change of {} in the config file; the application changed it", key);
+                    return;
+                }
+
+                setElement(merged, key, value);
+            });
+
+            if (merged.equals(this.object)) {
+                return;
+            }
+
+            previous = this.snapshot;
+            current = this.publish(merged);
+
+            if (merged.equals(loaded)) {
+                this.persister.discardPending();
+            } else {
+                // the file lacks values of the application; write them together with the external changes
+                this.save();
+            }
+        }
+
+        LOGGER.info("Reloaded the config");
+        this.notifyListeners(previous, current);
+    }
+
+    /**
+     * Get the current snapshot of the config.
+     * The snapshot is immutable; changes publish a new snapshot.
+     *
+     * @return The current snapshot.
+     */
+    public ConfigSnapshot getSnapshot() {
+        return this.snapshot;
+    }
+
     /**
      * Get the spotify access token from the config.
      *
      * @return The spotify access token.
      */
     public String getSpotifyAccessToken() {
-        return this.object.getAsJsonObject("spotify")
-                .get("token")
-                .getAsString();
+        return this.snapshot.spotify().token();
     }
 
     /**
@@ -76,9 +190,7 @@ public class Config {
      * @return The spotify refresh token.
      */
     public String getSpotifyRefreshToken() {
-        return this.object.getAsJsonObject("spotify")
-                .get("refreshToken")
-                .getAsString();
+        return this.snapshot.spotify().refreshToken();
     }
 
     /**
@@ -87,9 +199,7 @@ public class Config {
      * @return The expiration timestamp.
      */
     public long getSpotifyExpiresAt() {
-        return this.object.getAsJsonObject("spotify")
-                .get("expiresAt")
-                .getAsLong();
+        return this.snapshot.spotify().expiresAt();
     }
 
     /**
@@ -98,9 +208,7 @@ public class Config {
      * @return The spotify client id.
      */
     public String getSpotifyClientID() {
-        return this.object.getAsJsonObject("spotify")
-                .get("clientId")
-                .getAsString();
+        return this.snapshot.spotify().clientId();
     }
 
     /**
@@ -109,9 +217,7 @@ public class Config {
      * @return The spotify client secret.
      */
     public String getSpotifyClientSecret() {
-        return this.object.getAsJsonObject("spotify")
-                .get("clientSecret")
-                .getAsString();
+        return this.snapshot.spotify().clientSecret();
     }
 
     /**
@@ -120,9 +226,7 @@ public class Config {
      * @return The spotify redirect uri.
      */
     public String getSpotifyRedirectURI() {
-        return this.object.getAsJsonObject("spotify")
-                .get("redirectURI")
-                .getAsString();
+        return this.snapshot.spotify().redirectURI();
     }
 
     /**
@@ -131,14 +235,7 @@ public class Config {
      * @return The spotify playlist id.
      */
     public Optional<String> getSpotifyPlaylistID() {
-        JsonElement element = this.object.getAsJsonObject("spotify")
-                .get("playlistID");
-
-        if (element.isJsonNull()) {
-            return Optional.empty();
-        }
-
-        return Optional.ofNullable(element.getAsString());
+        return Optional.ofNullable(this.snapshot.spotify().playlistID());
     }
 
     /**
@@ -147,9 +244,7 @@ public class Config {
      * @return The twitch access token.
      */
     public String getTwitchAccessToken() {
-        return this.object.getAsJsonObject("twitch")
-                .get("token")
-                .getAsString();
+        return this.snapshot.twitch().token();
     }
 
     /**
@@ -158,9 +253,7 @@ public class Config {
      * @return The twitch refresh token.
      */
     public String getTwitchRefreshToken() {
-        return this.object.getAsJsonObject("twitch")
-                .get("refreshToken")
-                .getAsString();
+        return this.snapshot.twitch().refreshToken();
     }
 
     /**
@@ -168,10 +261,8 @@ public class Config {
      *
      * @return The expiration timestamp of the twitch access token.
      */
-    public Integer getTwitchExpiresAt() {
-        return this.object.getAsJsonObject("twitch")
-                .get("expiresAt")
-                .getAsInt();
+    public long getTwitchExpiresAt() {
+        return this.snapshot.twitch().expiresAt();
     }
 
     /**
@@ -180,9 +271,7 @@ public class Config {
      * @return The twitch client id.
      */
     public String getTwitchClientID() {
-        return this.object.getAsJsonObject("twitch")
-                .get("clientId")
-                .getAsString();
+        return this.snapshot.twitch().clientId();
     }
 
     /**
@@ -191,9 +280,7 @@ public class Config {
      * @return The twitch client secret.
      */
     public String getTwitchClientSecret() {
-        return this.object.getAsJsonObject("twitch")
-                .get("clientSecret")
-                .getAsString();
+        return this.snapshot.twitch().clientSecret();
     }
 
     /**
@@ -202,9 +289,7 @@ public class Config {
      * @return The twitch channel name.
      */
     public String getTwitchChannelName() {
-        return this.object.getAsJsonObject("twitch")
-                .get("channel")
-                .getAsString();
+        return this.snapshot.twitch().channel();
     }
 
     /**
@@ -213,10 +298,7 @@ public class Config {
      * @return The name of the add song redemption.
      */
     public String getTwitchRedemptionAddSong() {
-        return this.object.getAsJsonObject("twitch")
-                .getAsJsonObject("redemption")
-                .get("addSong")
-                .getAsString();
+        return this.snapshot.twitch().redemption().addSong();
     }
 
     /**
@@ -225,10 +307,7 @@ public class Config {
      * @return The name of the skip song redemption.
      */
     public String getTwitchRedemptionSkipSong() {
-        return this.object.getAsJsonObject("twitch")
-                .getAsJsonObject("redemption")
-                .get("skipSong")
-                .getAsString();
+        return this.snapshot.twitch().redemption().skipSong();
     }
 
     /**
@@ -237,10 +316,7 @@ public class Config {
      * @return The name of the skip song redemption.
      */
     public String getTwitchRedemptionPlayLastSong() {
-        return this.object.getAsJsonObject("twitch")
-                .getAsJsonObject("redemption")
-                .get("playLastSong")
-                .getAsString();
+        return this.snapshot.twitch().redemption().playLastSong();
     }
 
     /**
@@ -249,10 +325,7 @@ public class Config {
      * @return The name of the skip song redemption.
      */
     public String getTwitchRedemptionStartPlayback() {
-        return this.object.getAsJsonObject("twitch")
-                .getAsJsonObject("redemption")
-                .get("startPlayback")
-                .getAsString();
+        return this.snapshot.twitch().redemption().startPlayback();
     }
 
     /**
@@ -261,10 +334,7 @@ public class Config {
      * @return The name of the skip song redemption.
      */
     public String getTwitchRedemptionPausePlayback() {
-        return this.object.getAsJsonObject("twitch")
-                .getAsJsonObject("redemption")
-                .get("pausePlayback")
-                .getAsString();
+        return this.snapshot.twitch().redemption().pausePlayback();
     }
 
     /**
@@ -273,10 +343,7 @@ public class Config {
      * @return The name of the skip song redemption.
      */
     public String getTwitchRedemptionSkipTenSeconds() {
-        return this.object.getAsJsonObject("twitch")
-                .getAsJsonObject("redemption")
-                .get("skipTenSeconds")
-                .getAsString();
+        return this.snapshot.twitch().redemption().skipTenSeconds();
     }
 
     /**
@@ -285,10 +352,7 @@ public class Config {
      * @return The name of the skip song redemption.
      */
     public String getTwitchRedemptionPlayLastTenSeconds() {
-        return this.object.getAsJsonObject("twitch")
-                .getAsJsonObject("redemption")
-                .get("playLastTenSeconds")
-                .getAsString();
+        return this.snapshot.twitch().redemption().playLastTenSeconds();
     }
 
     /**
@@ -323,58 +387,195 @@ public class Config {
 
     /**
      * Set a value in the config.
+     * The change is applied to a copy of the config, which is then published as a new snapshot.
+     * Missing parent objects are created.
      *
      * @param key      The key in the config.
      * @param consumer The adding consumer.
      */
-    private void setValue(@NotNull String key, @NotNull BiConsumer<JsonObject, String> consumer) {
-        List<JsonObject> objects = new ArrayList<>();
-
-        objects.add(this.object);
+    private synchronized void setValue(@NotNull String key, @NotNull BiConsumer<JsonObject, String> consumer) {
+        JsonObject copy = this.object.deepCopy();
+        JsonObject parent = copy;
 
         String[] keyArray = key.split("\\.");
-        for (int i = 0; i < keyArray.length; i++) {
-            JsonObject jsonObject = objects.get(i);
-            JsonElement element = jsonObject.get(keyArray[i]);
+        for (int i = 0; i < keyArray.length - 1; i++) {
+            JsonElement element = parent.get(keyArray[i]);
 
-            if (element.isJsonObject()) {
-                objects.add(element.getAsJsonObject());
-                continue;
+            if (element == null || !element.isJsonObject()) {
+                element = new JsonObject();
+                parent.add(keyArray[i], element);
             }
 
-            consumer.accept(jsonObject, keyArray[i]);
+            parent = element.getAsJsonObject();
         }
 
-        for (int i = keyArray.length - 1; i >= 0; i--) {
-            if (i == 0) {
-                this.object = objects.get(i);
-                break;
+        consumer.accept(parent, keyArray[keyArray.length - 1]);
+
+        this.unsaved.add(key);
+        this.publish(copy);
+        this.save();
+    }
+
+    /**
+     * Forget the values set by the application once a write contains them.
+     *
+     * @param written The content of the write.
+     */
+    private synchronized void onWritten(@NotNull JsonObject written) {
+        this.disk = written;
+        this.unsaved.removeIf(key -> Objects.equals(getElement(written, key), getElement(this.object, key)));
+    }
+
+    /**
+     * Check whether a key or one of its children was set by the application and not written yet.
+     *
+     * @param key The key in the config.
+     * @return True when a pending value would be overwritten by changing the key.
+     */
+    private boolean isUnsaved(@NotNull String key) {
+        for (String unsaved : this.unsaved) {
+            if (unsaved.equals(key) || unsaved.startsWith(key + ".")) {
+                return true;
             }
+        }
 
-            objects.get(i - 1).add(keyArray[i - 1], objects.get(i));
+        return false;
+    }
+
+    /**
+     * Collect the values which differ between two versions of the config.
+     * Objects are compared key by key; all other values are compared as a whole.
+     *
+     * @param prefix   The key of the compared objects, or an empty string for the root.
+     * @param previous The previous version.
+     * @param current  The current version.
+     * @param changes  The changed keys and their current values, null for removed keys.
+     */
+    private static void collectChanges(@NotNull String prefix, @NotNull JsonObject previous,
+                                       @NotNull JsonObject current, @NotNull Map<String, JsonElement> changes) {
+        Set<String> keys = new LinkedHashSet<>(previous.keySet());
+        keys.addAll(current.keySet());
+
+        for (String key : keys) {
+            String path = prefix.isEmpty() ? key : prefix + "." + key;
+            JsonElement before = previous.get(key);
+            JsonElement after = current.get(key);
+
+            if (before != null && after != null && before.isJsonObject() && after.isJsonObject()) {
+                collectChanges(path, before.getAsJsonObject(), after.getAsJsonObject(), changes);
+            } else if (!Objects.equals(before, after)) {
+                changes.put(path, after);
+            }
         }
+    }
 
-        this.save();
+    @Nullable
+    private static JsonElement getElement(@NotNull JsonObject object, @NotNull String key) {
+        JsonElement element = object;
+
+        for (String part : key.split("\\.")) {
+            if (element == null || !element.isJsonObject()) {
+                return null;
+            }
+
+            element = element.getAsJsonObject().get(part);
+        }
+
+        return element;
     }
 
     /**
-     * Save the config.
+     * Set or remove a value, creating missing parent objects.
+     *
+     * @param object The content of the config.
+     * @param key    The key in the config.
+     * @param value  The value or null to remove the key.
      */
-    private void save() {
-        if (!this.file.exists()) {
+    private static void setElement(@NotNull JsonObject object, @NotNull String key, @Nullable JsonElement value) {
+        String[] keyArray = key.split("\\.");
+        JsonObject parent = object;
+
+        for (int i = 0; i < keyArray.length - 1; i++) {
+            JsonElement element = parent.get(keyArray[i]);
+
+            if (element == null || !element.isJsonObject()) {
+                if (value == null) {
+                    return;
+                }
+
+                element = new JsonObject();
+                parent.add(keyArray[i], element);
+            }
+
+            parent = element.getAsJsonObject();
+        }
+
+        if (value == null) {
+            parent.remove(keyArray[keyArray.length - 1]);
+            return;
+        }
+
+        parent.add(keyArray[keyArray.length - 1], value.deepCopy());
+    }
+
+    /**
+     * Publish new content of the config as a new snapshot.
+     *
+     * @param object The new content, which must not be modified afterwards.
+     * @return The new snapshot.
+     */
+    private ConfigSnapshot publish(@NotNull JsonObject object) {
+        this.object = object;
+        this.snapshot = ConfigSnapshot.fromJson(object);
+        return this.snapshot;
+    }
+
+    /**
+     * Notify the listeners whose selected value changed.
+     *
+     * @param previous The previous snapshot.
+     * @param current  The new snapshot.
+     */
+    private void notifyListeners(@NotNull ConfigSnapshot previous, @NotNull ConfigSnapshot current) {
+        for (Listener<?> listener : this.listeners) {
             try {
-                this.file.createNewFile();
-            } catch (IOException e) {
-                throw new RuntimeException(e);
+                listener.notifyIfChanged(previous, current);
+            } catch (Exception e) {
+                LOGGER.error("Config listener failed", e);
             }
         }
+    }
 
-        try {
-            FileWriter writer = new FileWriter(this.file, false);
-            writer.write(this.object.toString());
-            writer.close();
-        } catch (IOException e) {
-            throw new RuntimeException(e);
+    /**
+     * Write pending changes to the config file before the application stops.
+     */
+    public void shutdown() {
+        this.persister.flush();
+    }
+
+    /**
+     * Get the background writer of the config file.
+     *
+     * @return The persister.
+     */
+    public ConfigPersister getPersister() {
+        return persister;
+    }
+
+    /**
+     * Save the config.
+     * The file is written in the background; bursts of changes result in a single write.
+     */
+    private void save() {
+        this.persister.schedule(this.object);
+    }
+
+    private record Listener<T>(Function<ConfigSnapshot, T> selector, Consumer<ConfigSnapshot> listener) {
+
+        private void notifyIfChanged(@NotNull ConfigSnapshot previous, @NotNull ConfigSnapshot current) {
+            if (!Objects.equals(this.selector.apply(previous), this.selector.apply(current))) {
+                this.listener.accept(current);
+            }
         }
     }
 }
@@ -0,0 +1,178 @@
+package tv.banko.songrequest.config;
+
+import com.google.gson.JsonObject;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import tv.banko.songrequest.util.NamedThreadFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * Writes the config file in the background.
+ * Bursts of changes are collapsed into a single write of the latest content, which is written to a temporary file
+ * and then moved over the config file, so a crash never leaves a truncated config behind.
+ */
+public class ConfigPersister {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ConfigPersister.class);
+
+    private static final long DEBOUNCE_MILLIS = 250;
+    private static final long RETRY_DELAY_MILLIS = TimeUnit.SECONDS.toMillis(1);
+    private static final long FLUSH_TIMEOUT_SECONDS = 5;
+
+    private final Path file;
+    private final Path temporaryFile;
+    private final ScheduledExecutorService executor;
+    private final AtomicReference<JsonObject> pending;
+    private final Consumer<JsonObject> onWritten;
+
+    private volatile JsonObject lastWritten;
+    private volatile long writes;
+    private volatile long lastWriteNanos;
+    private volatile long maxWriteNanos;
+
+    public ConfigPersister(@NotNull Path file) {
+        this(file, object -> {
+        });
+    }
+
+    /**
+     * @param file      The config file.
+     * @param onWritten The action called on the writer thread with the content of every successful write.
+     */
+    public ConfigPersister(@NotNull Path file, @NotNull Consumer<JsonObject> onWritten) {
+        this.file = file.toAbsolutePath();
+        this.onWritten = onWritten;
+        this.temporaryFile = this.file.resolveSibling(this.file.getFileName() + ".tmp");
+        this.executor = Executors.newSingleThreadScheduledExecutor(new NamedThreadFactory("songrequest-config"));
+        this.pending = new AtomicReference<>();
+    }
+
+    /**
+     * Schedule writing the config.
+     * The content is serialized on the writer thread, so it must not be modified afterwards.
+     *
+     * @param object The content of the config.
+     */
+    public void schedule(@NotNull JsonObject object) {
+        if (this.pending.getAndSet(object) == null) {
+            this.executor.schedule(this::write, DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Drop the pending content, e.g. when the file was changed outside the application in the meantime.
+     */
+    public void discardPending() {
+        this.pending.set(null);
+    }
+
+    /**
+     * Write the pending content immediately and wait for it.
+     */
+    public void flush() {
+        try {
+            this.executor.submit(this::write).get(FLUSH_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | TimeoutException e) {
+            LOGGER.error("Flushing the config failed", e);
+        }
+    }
+
+    /**
+     * Get the content of the last successful write.
+     *
+     * @return The content or null when nothing was written yet.
+     */
+    @Nullable
+    public JsonObject getLastWritten() {
+        return this.lastWritten;
+    }
+
+    /**
+     * Get the amount of completed writes.
+     *
+     * @return The amount of writes.
+     */
+    public long getWrites() {
+        return this.writes;
+    }
+
+    /**
+     * Get the duration of the last write.
+     *
+     * @return The duration in nanoseconds.
+     */
+    public long getLastWriteNanos() {
+        return this.lastWriteNanos;
+    }
+
+    /**
+     * Get the duration of the slowest write.
+     *
+     * @return The duration in nanoseconds.
+     */
+    public long getMaxWriteNanos() {
+        return this.maxWriteNanos;
+    }
+
+    private void write() {
+        JsonObject object = this.pending.getAndSet(null);
+
+        if (object == null) {
+            return;
+        }
+
+        long start = System.nanoTime();
+
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(object.toString().getBytes(StandardCharsets.UTF_8));
+
+            try (FileChannel channel = FileChannel.open(this.temporaryFile, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                channel.force(true);
+            }
+
+            try {
+                Files.move(this.temporaryFile, this.file, StandardCopyOption.ATOMIC_MOVE,
+                        StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(this.temporaryFile, this.file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            LOGGER.error("Saving the config failed, retrying", e);
+
+            // a newer change schedules its own write; otherwise retry this content
+            if (this.pending.compareAndSet(null, object)) {
+                this.executor.schedule(this::write, RETRY_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+            }
+            return;
+        }
+
+        long duration = System.nanoTime() - start;
+        this.lastWritten = object;
+        this.writes++;
+        this.lastWriteNanos = duration;
+        this.maxWriteNanos = Math.max(this.maxWriteNanos, duration);
+        this.onWritten.accept(object);
+
+        LOGGER.debug("Saved config in {} ms", TimeUnit.NANOSECONDS.toMillis(duration));
+    }
+}
@@ -0,0 +1,171 @@
+package tv.banko.songrequest.config;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * An immutable, typed view of the config file.
+ * A new snapshot is created for every change, so a snapshot never changes while it is read.
+ *
+ * @param twitch  The twitch section.
+ * @param spotify The spotify section.
+ * @param http    The http section.
+ */
+public record ConfigSnapshot(@NotNull TwitchConfig twitch, @NotNull SpotifyConfig spotify, @NotNull HttpConfig http) {
+
+    /**
+     * Create a snapshot from the json content of the config.
+     * Missing values fall back to empty strings or 0, and missing http settings to their defaults.
+     *
+     * @param object The json content of the config.
+     * @return The snapshot.
+     */
+    public static ConfigSnapshot fromJson(@NotNull JsonObject object) {
+        JsonObject twitch = getObject(object, "twitch");
+        JsonObject redemption = getObject(twitch, "redemption");
+        JsonObject queue = getObject(twitch, "queue");
+        JsonObject chat = getObject(twitch, "chat");
+        JsonObject spotify = getObject(object, "spotify");
+        JsonObject http = getObject(object, "http");
+
+        return new ConfigSnapshot(
+                new TwitchConfig(
+                        getString(twitch, "token"),
+                        getString(twitch, "refreshToken"),
+                        getString(twitch, "clientId"),
+                        getString(twitch, "clientSecret"),
+                        getLong(twitch, "expiresAt"),
+                        getString(twitch, "channel"),
+                        getString(twitch, "transport", TwitchConfig.DEFAULT_TRANSPORT),
+                        new RedemptionConfig(
+                                getString(redemption, "addSong"),
+                                getString(redemption, "skipSong"),
+                                getString(redemption, "playLastSong"),
+                                getString(redemption, "startPlayback"),
+                                getString(redemption, "pausePlayback"),
+                                getString(redemption, "skipTenSeconds"),
+                                getString(redemption, "playLastTenSeconds")),
+                        new QueueConfig(
+                                (int) getLong(queue, "capacity", QueueConfig.DEFAULT_CAPACITY),
+                                (int) getLong(queue, "workers", QueueConfig.DEFAULT_WORKERS),
+                                getString(queue, "overflow", QueueConfig.DEFAULT_OVERFLOW),
+                                (int) getLong(queue, "maxDeferred", QueueConfig.DEFAULT_MAX_DEFERRED)),
+                        new ChatConfig(
+                                getString(chat, "rateClass", ChatConfig.DEFAULT_RATE_CLASS),
+                                getLong(chat, "maxDelayMillis", ChatConfig.DEFAULT_MAX_DELAY_MILLIS))),
+                new SpotifyConfig(
+                        getString(spotify, "token"),
+                        getString(spotify, "refreshToken"),
+                        getLong(spotify, "expiresAt"),
+                        getString(spotify, "clientId"),
+                        getString(spotify, "clientSecret"),
+                        getString(spotify, "redirectURI"),
+                        getNullableString(spotify, "playlistID")),
+                new HttpConfig(
+                        (int) getLong(http, "retryAttempts", HttpConfig.DEFAULT_RETRY_ATTEMPTS),
+                        getLong(http, "retryBaseDelayMillis", HttpConfig.DEFAULT_RETRY_BASE_DELAY_MILLIS),
+                        getLong(http, "retryMaxDelayMillis", HttpConfig.DEFAULT_RETRY_MAX_DELAY_MILLIS),
+                        (int) getLong(http, "circuitFailureThreshold", HttpConfig.DEFAULT_CIRCUIT_FAILURE_THRESHOLD),
+                        getLong(http, "circuitOpenMillis", HttpConfig.DEFAULT_CIRCUIT_OPEN_MILLIS)));
+    }
+
+    private static JsonObject getObject(@NotNull JsonObject object, @NotNull String key) {
+        JsonElement element = object.get(key);
+        return element != null && element.isJsonObject() ? element.getAsJsonObject() : new JsonObject();
+    }
+
+    private static String getString(@NotNull JsonObject object, @NotNull String key) {
+        return getString(object, key, "");
+    }
+
+    private static String getString(@NotNull JsonObject object, @NotNull String key, @NotNull String defaultValue) {
+        String value = getNullableString(object, key);
+        return value != null ? value : defaultValue;
+    }
+
+    @Nullable
+    private static String getNullableString(@NotNull JsonObject object, @NotNull String key) {
+        JsonElement element = object.get(key);
+        return element != null && !element.isJsonNull() ? element.getAsString() : null;
+    }
+
+    private static long getLong(@NotNull JsonObject object, @NotNull String key) {
+        return getLong(object, key, 0);
+    }
+
+    private static long getLong(@NotNull JsonObject object, @NotNull String key, long defaultValue) {
+        JsonElement element = object.get(key);
+        return element != null && !element.isJsonNull() ? element.getAsLong() : defaultValue;
+    }
+
+    public record TwitchConfig(@NotNull String token, @NotNull String refreshToken, @NotNull String clientId,
+                               @NotNull String clientSecret, long expiresAt, @NotNull String channel,
+                               @NotNull String transport, @NotNull RedemptionConfig redemption,
+                               @NotNull QueueConfig queue, @NotNull ChatConfig chat) {
+
+        /**
+         * The transport of the redemptions in configs created before EventSub was supported.
+         */
+        public static final String DEFAULT_TRANSPORT = "pubsub";
+    }
+
+    public record RedemptionConfig(@NotNull String addSong, @NotNull String skipSong, @NotNull String playLastSong,
+                                   @NotNull String startPlayback, @NotNull String pausePlayback,
+                                   @NotNull String skipTenSeconds, @NotNull String playLastTenSeconds) {
+    }
+
+    /**
+     * The admission of redemptions during bursts.
+     *
+     * @param capacity The maximum amount of redemptions waiting to be handled.
+     * @param workers  The maximum amount of redemptions handled at the same time.
+     * @param overflow What happens to redemptions arriving while the queue is full: "cancel" refunds them,
+     *                 "defer" keeps them until there is space in the queue again.
+     * @param maxDeferred The maximum amount of deferred redemptions; further redemptions are canceled.
+     */
+    public record QueueConfig(int capacity, int workers, @NotNull String overflow, int maxDeferred) {
+
+        public static final int DEFAULT_CAPACITY = 100;
+        public static final int DEFAULT_WORKERS = 4;
+        public static final String DEFAULT_OVERFLOW = "cancel";
+        public static final int DEFAULT_MAX_DEFERRED = 100;
+    }
+
+    /**
+     * The outbound chat messages.
+     *
+     * @param rateClass      The chat rate limit of the account: "user", "moderator" or "verified".
+     * @param maxDelayMillis The time after which a message waiting for the rate limit is dropped.
+     */
+    public record ChatConfig(@NotNull String rateClass, long maxDelayMillis) {
+
+        public static final String DEFAULT_RATE_CLASS = "user";
+        public static final long DEFAULT_MAX_DELAY_MILLIS = 30000;
+    }
+
+    public record SpotifyConfig(@NotNull String token, @NotNull String refreshToken, long expiresAt,
+                                @NotNull String clientId, @NotNull String clientSecret, @NotNull String redirectURI,
+                                @Nullable String playlistID) {
+    }
+
+    /**
+     * The resilience settings of the http calls to Spotify and Twitch.
+     *
+     * @param retryAttempts           The maximum attempts of an idempotent call, including the first one.
+     * @param retryBaseDelayMillis    The delay before the first retry; it doubles with every further retry.
+     * @param retryMaxDelayMillis     The maximum delay between two attempts.
+     * @param circuitFailureThreshold The consecutive failures of an endpoint which open its circuit.
+     * @param circuitOpenMillis       The time an open circuit fails fast before a probe call is let through.
+     */
+    public record HttpConfig(int retryAttempts, long retryBaseDelayMillis, long retryMaxDelayMillis,
+                             int circuitFailureThreshold, long circuitOpenMillis) {
+
+        public static final int DEFAULT_RETRY_ATTEMPTS = 3;
+        public static final long DEFAULT_RETRY_BASE_DELAY_MILLIS = 250;
+        public static final long DEFAULT_RETRY_MAX_DELAY_MILLIS = 5000;
+        public static final int DEFAULT_CIRCUIT_FAILURE_THRESHOLD = 5;
+        public static final long DEFAULT_CIRCUIT_OPEN_MILLIS = 30000;
+    }
+}
@@ -0,0 +1,85 @@
+package tv.banko.songrequest.config;
+
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Watches the config file and reloads the config when the file is changed outside the application.
+ */
+public class ConfigWatcher implements Runnable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ConfigWatcher.class);
+
+    private static final long SETTLE_MILLIS = 200;
+
+    private final Config config;
+    private final Path file;
+
+    public ConfigWatcher(@NotNull Config config, @NotNull Path file) {
+        this.config = config;
+        this.file = file.toAbsolutePath();
+    }
+
+    /**
+     * Start watching the config file on a daemon thread.
+     */
+    public void start() {
+        Thread thread = new Thread(this, "songrequest-config-watcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Override
+    public void run() {
+        Path directory = this.file.getParent();
+
+        try (WatchService service = directory.getFileSystem().newWatchService()) {
+            directory.register(service, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+
+            while (!Thread.currentThread().isInterrupted()) {
+                WatchKey key = service.take();
+
+                if (this.isConfigChanged(key)) {
+                    // editors write in several steps; wait for the file to settle and collect the follow-up events
+                    Thread.sleep(SETTLE_MILLIS);
+                    WatchKey followUp;
+
+                    while ((followUp = service.poll(SETTLE_MILLIS, TimeUnit.MILLISECONDS)) != null) {
+                        this.isConfigChanged(followUp);
+                    }
+
+                    this.config.reload();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            LOGGER.error("Watching the config failed; changes require a restart", e);
+        }
+    }
+
+    /**
+     * Check whether the events of a key concern the config file and reset the key.
+     *
+     * @param key The key of the watched directory.
+     * @return True when the config file was changed.
+     */
+    private boolean isConfigChanged(@NotNull WatchKey key) {
+        boolean changed = false;
+
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW
+                    || (event.context() instanceof Path path && path.equals(this.file.getFileName()))) {
+                changed = true;
+            }
+        }
+
+        key.reset();
+        return changed;
+    }
+}
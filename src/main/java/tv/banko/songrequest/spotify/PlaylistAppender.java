@@ -0,0 +1,124 @@
+package tv.banko.songrequest.spotify;
+
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Collects tracks for the playlist and appends them in batches instead of one request per track.
+ * Batches are written one after another, so the tracks keep the order in which they were queued.
+ */
+public class PlaylistAppender {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(PlaylistAppender.class);
+
+    private static final int MAX_BATCH_SIZE = 100;
+    private static final long FLUSH_WINDOW_MILLIS = TimeUnit.SECONDS.toMillis(2);
+    private static final int MAX_ATTEMPTS = 3;
+    private static final long RETRY_DELAY_MILLIS = TimeUnit.SECONDS.toMillis(5);
+
+    private final Spotify spotify;
+    private final ScheduledExecutorService scheduler;
+    private final List<String> pending;
+
+    private ScheduledFuture<?> scheduledFlush;
+    private CompletableFuture<Void> lastBatch;
+
+    public PlaylistAppender(@NotNull Spotify spotify) {
+        this.spotify = spotify;
+        this.scheduler = spotify.getRequest().getScheduler();
+        this.pending = new ArrayList<>();
+        this.lastBatch = CompletableFuture.completedFuture(null);
+
+        spotify.getRequest().getConfig().addListener(snapshot -> snapshot.spotify().playlistID(), snapshot -> {
+            LOGGER.info("The playlist changed to {}", snapshot.spotify().playlistID());
+            this.flush();
+        });
+    }
+
+    /**
+     * Add a track to the playlist with the next batch.
+     * The batch is written when it is full or when the flush window has passed.
+     *
+     * @param spotifyTrackId The id of the track (spotify:track:<ID>).
+     */
+    public synchronized void add(@NotNull String spotifyTrackId) {
+        this.pending.add(spotifyTrackId);
+
+        if (this.pending.size() >= MAX_BATCH_SIZE) {
+            this.flush();
+            return;
+        }
+
+        if (this.scheduledFlush == null) {
+            this.scheduledFlush = this.scheduler.schedule(this::flush, FLUSH_WINDOW_MILLIS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Write all pending tracks to the playlist.
+     *
+     * @return A completable future which is completed when all batches written so far are done.
+     */
+    public synchronized CompletableFuture<Void> flush() {
+        if (this.scheduledFlush != null) {
+            this.scheduledFlush.cancel(false);
+            this.scheduledFlush = null;
+        }
+
+        while (!this.pending.isEmpty()) {
+            List<String> subList = this.pending.subList(0, Math.min(this.pending.size(), MAX_BATCH_SIZE));
+            List<String> batch = List.copyOf(subList);
+            subList.clear();
+
+            this.lastBatch = this.lastBatch.thenCompose(o -> this.write(batch, 1))
+                    .exceptionally(throwable -> {
+                        LOGGER.error("Dropping {} tracks for the playlist", batch.size(), throwable);
+                        return null;
+                    });
+        }
+
+        return this.lastBatch;
+    }
+
+    /**
+     * Write a batch to the playlist, retrying it when the request fails.
+     *
+     * @param batch   The track ids of the batch.
+     * @param attempt The number of the attempt.
+     * @return A completable future which is completed when the batch is written or dropped.
+     */
+    private CompletableFuture<Void> write(@NotNull List<String> batch, int attempt) {
+        Optional<String> playlistId = this.spotify.getRequest().getConfig().getSpotifyPlaylistID();
+
+        if (playlistId.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        return this.spotify.getAPI().addToPlaylist(playlistId.get(), batch)
+                .handle((o, throwable) -> {
+                    if (throwable == null) {
+                        return CompletableFuture.<Void>completedFuture(null);
+                    }
+
+                    if (attempt >= MAX_ATTEMPTS) {
+                        LOGGER.error("Dropping {} tracks for the playlist after {} attempts", batch.size(), attempt, throwable);
+                        return CompletableFuture.<Void>completedFuture(null);
+                    }
+
+                    LOGGER.warn("Adding {} tracks to the playlist failed, retrying", batch.size(), throwable);
+                    return CompletableFuture.supplyAsync(() -> null,
+                                    CompletableFuture.delayedExecutor(RETRY_DELAY_MILLIS * attempt, TimeUnit.MILLISECONDS, this.scheduler))
+                            .thenCompose(v -> this.write(batch, attempt + 1));
+                })
+                .thenCompose(future -> future);
+    }
+}
@@ -1,39 +1,73 @@
 package tv.banko.songrequest.spotify;
 
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import tv.banko.songrequest.SongRequest;
+import tv.banko.songrequest.util.CachedValue;
+import tv.banko.songrequest.util.PhaseTimer;
 
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 
 public class Spotify {
 
+    private static final Logger LOGGER = LoggerFactory.getLogger(Spotify.class);
+
+    private static final long STAGE_TIMEOUT_SECONDS = 10;
+    private static final long QUEUE_CACHE_EXPIRE_MILLIS = TimeUnit.SECONDS.toMillis(5);
+
     private final SongRequest request;
     private final SpotifyAPI api;
+    private final PlaylistAppender playlistAppender;
+    private final CachedValue<List<String>> queue;
 
     public Spotify(@NotNull SongRequest request) {
         this.request = request;
         this.api = new SpotifyAPI(this);
+        this.playlistAppender = new PlaylistAppender(this);
+        this.queue = new CachedValue<>(this.api::getQueue, QUEUE_CACHE_EXPIRE_MILLIS);
     }
 
     /**
-     * Add a song to the queue.
+     * Prepare the access token, so the first redemption does not wait for its regeneration.
+     * Failing to prepare it does not stop the startup, since Spotify may not be connected yet.
      *
-     * @param spotifyTrackId The id of the track (spotify:track:<ID>).
-     * @return A completable future which contains a true boolean when the execution was successful.
+     * @param timer The timer of the startup.
+     * @return A completable future which completes when the token is prepared.
      */
-    public CompletableFuture<Object> addSongToQueue(@NotNull String spotifyTrackId) {
-        CompletableFuture<Object> future = this.api.addSongToQueue(spotifyTrackId);
-
-        try {
-            future.get();
-            this.api.addToPlaylist(spotifyTrackId);
-            return this.api.getName(spotifyTrackId);
-        } catch (Exception e) {
-            return CompletableFuture.failedFuture(e);
+    public CompletableFuture<Void> start(@NotNull PhaseTimer timer) {
+        if (this.request.getConfig().getSpotifyRefreshToken().isEmpty()) {
+            LOGGER.warn("Spotify is not connected yet; use !sr-spotify to connect it");
+            return CompletableFuture.completedFuture(null);
         }
+
+        return timer.time("spotify token", this.api::getAccessToken)
+                .orTimeout(STAGE_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+                .handle((token, throwable) -> {
+                    if (throwable != null) {
+                        LOGGER.warn("Preparing the Spotify token failed", throwable);
+                    }
+                    return null;
+                });
+    }
+
+    /**
+     * Add a song to the queue.
+     * Once queued, the song is handed to the playlist appender, which adds it to the playlist with the next batch.
+     *
+     * @param track The metadata of the track.
+     * @return A completable future which contains the metadata of the track when the execution was successful.
+     */
+    public CompletableFuture<TrackInfo> addSongToQueue(@NotNull TrackInfo track) {
+        return this.api.addSongToQueue(track.uri())
+                .thenApplyAsync(o -> {
+                    this.queue.invalidate();
+                    this.playlistAppender.add(track.uri());
+                    return track;
+                }, this.request.getExecutor());
     }
 
     /**
@@ -42,7 +76,7 @@ public class Spotify {
      * @return A completable future which contains a true boolean when the execution was successful.
      */
     public CompletableFuture<Object> skipSong() {
-        return this.api.skipSong();
+        return this.api.skipSong().whenComplete((o, throwable) -> this.queue.invalidate());
     }
 
     /**
@@ -69,7 +103,7 @@ public class Spotify {
      * @return A completable future which contains a true boolean when the execution was successful.
      */
     public CompletableFuture<Object> playLastSong() {
-        return this.api.playLastSong();
+        return this.api.playLastSong().whenComplete((o, throwable) -> this.queue.invalidate());
     }
 
     /**
@@ -92,11 +126,27 @@ public class Spotify {
 
     /**
      * Gets the next 5 songs from the queue.
+     * The queue is cached for a few seconds and concurrent callers share a single request.
+     * Queueing, skipping or going back a song drops the cached queue.
      *
      * @return A completable future which contains a List of Strings with the song's name and the artist's name.
      */
     public CompletableFuture<List<String>> getQueue() {
-        return this.api.getQueue();
+        return this.queue.get();
+    }
+
+    /**
+     * Get the metadata of the requested track.
+     * Track uris and urls are resolved from the track cache; any other query is searched.
+     *
+     * @param query The query entered by the user.
+     * @return A completable future which contains the metadata of the track when the execution was successful.
+     */
+    public CompletableFuture<TrackInfo> getTrack(@NotNull String query) {
+        String trackId = getTrackId(query);
+        return trackId != null
+                ? this.api.getTrack(trackId)
+                : this.api.searchTrack(query);
     }
 
     /**
@@ -105,19 +155,33 @@ public class Spotify {
      * When the query contains open.spotify.com/track/, the track id within the url is used.
      *
      * @param query The query entered by the user.
-     * @return A completable future which contains the track id (spotify:track:<ID>) string when the execution was successful.
+     * @return The track id (spotify:track:<ID>) or null when the query is neither a track uri nor a track url.
      */
-    public CompletableFuture<Object> getTrackId(@NotNull String query) {
+    @Nullable
+    public static String getTrackId(@NotNull String query) {
         if (query.startsWith("spotify:track:")) {
-            return CompletableFuture.completedFuture(query.split(" ")[0]);
+            return query.split(" ")[0];
         }
 
-        if (query.contains("://open.spotify.com/")) {
-            String trackId = query.split("/track/")[1].split("\\?")[0];
-            return CompletableFuture.completedFuture("spotify:track:" + trackId);
+        if (query.contains("://open.spotify.com/") && query.contains("/track/")) {
+            String trackId = query.split("/track/")[1].split("[?\\s]")[0];
+            return "spotify:track:" + trackId;
         }
 
-        return this.api.searchTrack(query);
+        return null;
+    }
+
+    /**
+     * Write the pending playlist tracks before the application stops.
+     *
+     * @param timeoutMillis The maximum time to wait for the playlist in milliseconds.
+     */
+    public void shutdown(long timeoutMillis) {
+        try {
+            this.playlistAppender.flush().get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
     }
 
     public SongRequest getRequest() {
@@ -127,4 +191,8 @@ public class Spotify {
     public SpotifyAPI getAPI() {
         return api;
     }
+
+    public PlaylistAppender getPlaylistAppender() {
+        return playlistAppender;
+    }
 }
@@ -1,11 +1,15 @@
 package tv.banko.songrequest.spotify;
 
-import com.google.gson.JsonArray;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
 import okhttp3.*;
 import org.jetbrains.annotations.NotNull;
+import tv.banko.songrequest.SongRequest;
 import tv.banko.songrequest.config.Config;
+import tv.banko.songrequest.spotify.SpotifyRequestScheduler.Priority;
+import tv.banko.songrequest.util.CircuitBreaker;
+import tv.banko.songrequest.util.ExpiringCache;
+import tv.banko.songrequest.util.HTTPClientFactory;
 import tv.banko.songrequest.util.HTTPMethod;
 
 import java.io.IOException;
@@ -13,16 +17,56 @@ import java.nio.charset.StandardCharsets;
 import java.text.MessageFormat;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.BiConsumer;
+import java.util.regex.Pattern;
 
 public class SpotifyAPI {
 
+    private static final String TOKEN_URL = "https://accounts.spotify.com/api/token";
+    private static final long TOKEN_REFRESH_TIMEOUT_MILLIS = TimeUnit.SECONDS.toMillis(10);
+    private static final long REQUEST_TIMEOUT_MILLIS = TimeUnit.SECONDS.toMillis(10);
+    private static final int SEARCH_CACHE_SIZE = 512;
+    private static final long SEARCH_CACHE_EXPIRE_MILLIS = TimeUnit.HOURS.toMillis(6);
+    private static final int TRACK_CACHE_SIZE = 2048;
+    private static final long TRACK_CACHE_EXPIRE_MILLIS = TimeUnit.HOURS.toMillis(24);
+    private static final Pattern PUNCTUATION = Pattern.compile("[\\p{P}\\p{S}\\s]+");
+
     private final Spotify spotify;
     private final OkHttpClient client;
+    private final String tokenURL;
+    private final long tokenRefreshTimeoutMillis;
+    private final SpotifyRequestScheduler requestScheduler;
+    private final AtomicReference<CompletableFuture<String>> tokenRefresh;
+    private final ExpiringCache<String, TrackInfo> searchCache;
+    private final ExpiringCache<String, TrackInfo> trackCache;
+
+    private volatile String accessToken;
+    private volatile long accessTokenExpiresAt;
 
     public SpotifyAPI(@NotNull Spotify spotify) {
+        this(spotify, TOKEN_URL, TOKEN_REFRESH_TIMEOUT_MILLIS);
+    }
+
+    /**
+     * @param spotify                   The Spotify instance.
+     * @param tokenURL                  The url of the token endpoint.
+     * @param tokenRefreshTimeoutMillis The time after which a token regeneration fails.
+     */
+    SpotifyAPI(@NotNull Spotify spotify, @NotNull String tokenURL, long tokenRefreshTimeoutMillis) {
         this.spotify = spotify;
-        this.client = new OkHttpClient();
+        this.client = spotify.getRequest().getHttpClient();
+        this.tokenURL = tokenURL;
+        this.tokenRefreshTimeoutMillis = tokenRefreshTimeoutMillis;
+        this.requestScheduler = new SpotifyRequestScheduler(spotify.getRequest().getScheduler());
+        this.tokenRefresh = new AtomicReference<>();
+        this.searchCache = new ExpiringCache<>(SEARCH_CACHE_SIZE, SEARCH_CACHE_EXPIRE_MILLIS);
+        this.trackCache = new ExpiringCache<>(TRACK_CACHE_SIZE, TRACK_CACHE_EXPIRE_MILLIS);
+
+        Config config = spotify.getRequest().getConfig();
+        this.accessToken = config.getSpotifyAccessToken();
+        this.accessTokenExpiresAt = config.getSpotifyExpiresAt();
     }
 
     /**
@@ -34,7 +78,7 @@ public class SpotifyAPI {
     public CompletableFuture<Object> addSongToQueue(@NotNull String spotifyTrackId) {
         String url = MessageFormat.format("https://api.spotify.com/v1/me/player/queue?uri={0}",
                 spotifyTrackId);
-        return this.sendNoResponseBodyRequest(url);
+        return this.sendNoResponseBodyRequest(url, HTTPMethod.POST, Priority.HIGH);
     }
 
     /**
@@ -44,7 +88,7 @@ public class SpotifyAPI {
      */
     public CompletableFuture<Object> skipSong() {
         String url = "https://api.spotify.com/v1/me/player/next";
-        return this.sendNoResponseBodyRequest(url);
+        return this.sendNoResponseBodyRequest(url, HTTPMethod.POST, Priority.HIGH);
     }
 
     /**
@@ -54,7 +98,7 @@ public class SpotifyAPI {
      */
     public CompletableFuture<Object> playLastSong() {
         String url = "https://api.spotify.com/v1/me/player/previous";
-        return this.sendNoResponseBodyRequest(url);
+        return this.sendNoResponseBodyRequest(url, HTTPMethod.POST, Priority.HIGH);
     }
 
     /**
@@ -64,7 +108,7 @@ public class SpotifyAPI {
      */
     public CompletableFuture<Object> startPlayback() {
         String url = "https://api.spotify.com/v1/me/player/play";
-        return this.sendNoResponseBodyRequest(url, HTTPMethod.PUT);
+        return this.sendNoResponseBodyRequest(url, HTTPMethod.PUT, Priority.HIGH);
     }
 
     /**
@@ -74,7 +118,7 @@ public class SpotifyAPI {
      */
     public CompletableFuture<Object> pausePlayback() {
         String url = "https://api.spotify.com/v1/me/player/pause";
-        return this.sendNoResponseBodyRequest(url, HTTPMethod.PUT);
+        return this.sendNoResponseBodyRequest(url, HTTPMethod.PUT, Priority.HIGH);
     }
 
     /**
@@ -87,7 +131,7 @@ public class SpotifyAPI {
         String currentURL = "https://api.spotify.com/v1/me/player/currently-playing";
         String offsetURL = "https://api.spotify.com/v1/me/player/seek?position_ms={0}";
 
-        this.sendRequest(currentURL, HTTPMethod.GET, (response, currentFuture) -> {
+        this.sendRequest(currentURL, HTTPMethod.GET, Priority.HIGH, (response, currentFuture) -> {
             if (currentFuture.isCompletedExceptionally()) {
                 try {
                     currentFuture.get();
@@ -111,41 +155,40 @@ public class SpotifyAPI {
                 return;
             }
 
-            try {
-                JsonObject object = JsonParser.parseString(response.body().string()).getAsJsonObject();
-                int progress = Math.max(object.get("progress_ms").getAsInt() + offset, 0);
+            try (ResponseBody body = response.body()) {
+                int progress = Math.max(SpotifyResponseDecoder.decodeProgress(body.charStream()) + offset, 0);
 
-                this.sendNoResponseBodyRequest(MessageFormat.format(offsetURL, "" + progress), HTTPMethod.PUT)
+                this.sendNoResponseBodyRequest(MessageFormat.format(offsetURL, "" + progress), HTTPMethod.PUT, Priority.HIGH)
                         .whenCompleteAsync((o, throwable) -> {
                             if (throwable != null) {
                                 future.completeExceptionally(throwable);
                                 return;
                             }
                             future.complete((Boolean) o);
-                        });
-            } catch (IOException e) {
+                        }, this.spotify.getRequest().getExecutor());
+            } catch (IOException | RuntimeException e) {
                 future.completeExceptionally(e);
             }
+        }).whenComplete((o, throwable) -> {
+            if (throwable != null) {
+                future.completeExceptionally(throwable);
+            }
         });
 
         return future;
     }
 
     /**
-     * Add a song to the playlist.
+     * Add songs to the playlist in a single request.
      *
-     * @param spotifyTrackId The id of the track (spotify:track:<ID>).
+     * @param playlistId      The id of the playlist.
+     * @param spotifyTrackIds The ids of the tracks (spotify:track:<ID>) in the order they are appended; up to 100.
+     * @return A completable future which contains a true boolean when the execution was successful.
      */
-    public void addToPlaylist(String spotifyTrackId) {
-        Optional<String> optional = this.spotify.getRequest().getConfig().getSpotifyPlaylistID();
-
-        if (optional.isEmpty()) {
-            return;
-        }
-
+    public CompletableFuture<Object> addToPlaylist(@NotNull String playlistId, @NotNull List<String> spotifyTrackIds) {
         String url = MessageFormat.format("https://api.spotify.com/v1/playlists/{0}/tracks?uris={1}",
-                optional.get(), spotifyTrackId);
-        this.sendNoResponseBodyRequest(url, HTTPMethod.POST);
+                playlistId, String.join(",", spotifyTrackIds));
+        return this.sendNoResponseBodyRequest(url, HTTPMethod.POST, Priority.LOW);
     }
 
     /**
@@ -156,7 +199,7 @@ public class SpotifyAPI {
     public CompletableFuture<List<String>> getQueue() {
         CompletableFuture<List<String>> future = new CompletableFuture<>();
 
-        this.sendRequest("https://api.spotify.com/v1/me/player/queue", HTTPMethod.GET, (response, currentFuture) -> {
+        this.sendRequest("https://api.spotify.com/v1/me/player/queue", HTTPMethod.GET, Priority.LOW, (response, currentFuture) -> {
             if (currentFuture.isCompletedExceptionally()) {
                 try {
                     currentFuture.get();
@@ -180,41 +223,16 @@ public class SpotifyAPI {
                 return;
             }
 
-            try {
-                JsonObject object = JsonParser.parseString(response.body().string()).getAsJsonObject();
-
-                if (!object.has("queue")) {
-                    future.complete(Collections.emptyList());
-                    return;
-                }
-
-                List<String> list = new ArrayList<>();
-
-                JsonArray queue = object.getAsJsonArray("queue");
-
-                for (int queueId = 0; queueId < Math.min(queue.size(), 5); queueId++) {
-                    StringBuilder builder = new StringBuilder();
-                    JsonObject queueObject = queue.get(queueId).getAsJsonObject();
-
-                    builder.append(queueObject.get("name")).append(" - ");
-                    JsonArray artists = queueObject.getAsJsonArray("artists");
-
-                    for (int artistId = 0; artistId < artists.size(); artistId++) {
-                        if (artistId != 0) {
-                            builder.append(", ");
-                        }
-
-                        JsonObject artistObject = artists.get(artistId).getAsJsonObject();
-                        builder.append(artistObject.get("name").getAsString());
-                    }
-
-                    list.add(builder.toString());
-                }
-
+            try (ResponseBody body = response.body()) {
+                List<String> list = SpotifyResponseDecoder.decodeQueue(body.charStream(), 5);
                 future.complete(list);
-            } catch (IOException e) {
+            } catch (IOException | RuntimeException e) {
                 future.completeExceptionally(e);
             }
+        }).whenComplete((o, throwable) -> {
+            if (throwable != null) {
+                future.completeExceptionally(throwable);
+            }
         });
 
         return future;
@@ -222,15 +240,77 @@ public class SpotifyAPI {
 
     /**
      * Search for a specific track.
+     * Results are cached by the normalized query, and concurrent searches for the same query share one request.
+     * The metadata of the found track is also stored in the track cache.
      *
      * @param query The query for the song.
-     * @return A completable future which contains the track id (spotify:track:<ID>) string when the execution was successful.
+     * @return A completable future which contains the metadata of the first found track when the execution was successful.
      */
-    public CompletableFuture<Object> searchTrack(@NotNull String query) {
+    public CompletableFuture<TrackInfo> searchTrack(@NotNull String query) {
+        return this.searchCache.get(normalizeQuery(query), key -> this.requestTrackSearch(query));
+    }
+
+    /**
+     * Get the metadata of a specific track.
+     * The metadata is served from the track cache, which also contains all tracks found by previous searches.
+     *
+     * @param trackId The id of the track (spotify:track:<ID>).
+     * @return A completable future which contains the metadata of the track when the execution was successful.
+     */
+    public CompletableFuture<TrackInfo> getTrack(@NotNull String trackId) {
+        return this.trackCache.get(trackId, this::requestTrack);
+    }
+
+    /**
+     * Get the scheduler sending the api requests within the rate limit.
+     *
+     * @return The request scheduler.
+     */
+    public SpotifyRequestScheduler getRequestScheduler() {
+        return requestScheduler;
+    }
+
+    /**
+     * Get the cache of the search results.
+     *
+     * @return The search cache.
+     */
+    public ExpiringCache<String, TrackInfo> getSearchCache() {
+        return searchCache;
+    }
+
+    /**
+     * Get the cache of the track metadata.
+     *
+     * @return The track cache.
+     */
+    public ExpiringCache<String, TrackInfo> getTrackCache() {
+        return trackCache;
+    }
+
+    /**
+     * Normalize a search query, so queries only differing in case, whitespace or punctuation share a cache entry.
+     *
+     * @param query The query entered by the user.
+     * @return The normalized query.
+     */
+    static String normalizeQuery(@NotNull String query) {
+        return PUNCTUATION.matcher(query.toLowerCase(Locale.ROOT))
+                .replaceAll(" ")
+                .trim();
+    }
+
+    /**
+     * Request the search endpoint for a specific track.
+     *
+     * @param query The query for the song.
+     * @return A completable future which contains the metadata of the first found track when the execution was successful.
+     */
+    private CompletableFuture<TrackInfo> requestTrackSearch(@NotNull String query) {
         String url = MessageFormat.format("https://api.spotify.com/v1/search?q={0}&type={1}",
                 query, "track");
 
-        return this.sendRequest(url, HTTPMethod.GET, (response, future) -> {
+        return this.sendRequest(url, HTTPMethod.GET, Priority.HIGH, (response, future) -> {
             if (future.isCompletedExceptionally()) {
                 try {
                     future.get();
@@ -254,35 +334,32 @@ public class SpotifyAPI {
                 return;
             }
 
-            try {
-                JsonObject object = JsonParser.parseString(response.body().string()).getAsJsonObject();
-                JsonObject tracks = object.getAsJsonObject("tracks");
-                JsonArray items = tracks.getAsJsonArray("items");
+            try (ResponseBody body = response.body()) {
+                TrackInfo track = SpotifyResponseDecoder.decodeSearch(body.charStream());
 
-                if (items.size() == 0) {
+                if (track == null) {
                     future.completeExceptionally(new NullPointerException("No tracks found"));
                     return;
                 }
 
-                JsonObject item = items.get(0).getAsJsonObject();
-                String id = item.get("id").getAsString();
-                future.complete("spotify:track:" + id);
-            } catch (IOException e) {
+                this.trackCache.put(track.uri(), track);
+                future.complete(track);
+            } catch (IOException | RuntimeException e) {
                 future.completeExceptionally(e);
             }
-        });
+        }).thenApply(TrackInfo.class::cast);
     }
 
     /**
-     * Get the name of a specific track.
+     * Request the metadata of a specific track.
      *
-     * @param trackId The track's id
-     * @return A completable future which contains the name and the artist of the song when the execution was successful.
+     * @param trackId The id of the track (spotify:track:<ID>).
+     * @return A completable future which contains the metadata of the track when the execution was successful.
      */
-    public CompletableFuture<Object> getName(@NotNull String trackId) {
+    private CompletableFuture<TrackInfo> requestTrack(@NotNull String trackId) {
         String url = MessageFormat.format("https://api.spotify.com/v1/tracks/{0}", trackId.replace("spotify:track:", ""));
 
-        return this.sendRequest(url, HTTPMethod.GET, (response, future) -> {
+        return this.sendRequest(url, HTTPMethod.GET, Priority.HIGH, (response, future) -> {
             if (future.isCompletedExceptionally()) {
                 try {
                     future.get();
@@ -306,29 +383,12 @@ public class SpotifyAPI {
                 return;
             }
 
-            try {
-                JsonObject object = JsonParser.parseString(response.body().string()).getAsJsonObject();
-                String name = object.get("name").getAsString();
-
-                JsonArray artists = object.getAsJsonArray("artists");
-
-                StringBuilder builder = new StringBuilder();
-
-                artists.forEach(artist -> {
-                    JsonObject artistObject = artist.getAsJsonObject();
-
-                    if (!builder.isEmpty()) {
-                        builder.append(", ");
-                    }
-
-                    builder.append(artistObject.get("name").getAsString());
-                });
-
-                future.complete(name + " - " + builder.toString());
-            } catch (IOException e) {
+            try (ResponseBody body = response.body()) {
+                future.complete(SpotifyResponseDecoder.decodeTrack(body.charStream()));
+            } catch (IOException | RuntimeException e) {
                 future.completeExceptionally(e);
             }
-        });
+        }).thenApply(TrackInfo.class::cast);
     }
 
     /**
@@ -341,8 +401,7 @@ public class SpotifyAPI {
         CompletableFuture<Object> future = new CompletableFuture<>();
 
         Config config = this.spotify.getRequest().getConfig();
-        String url = MessageFormat.format("https://accounts.spotify.com/api/token" +
-                        "?code={0}&redirect_uri={1}&grant_type={2}",
+        String url = MessageFormat.format("{0}?code={1}&redirect_uri={2}&grant_type={3}", this.tokenURL,
                 code, config.getSpotifyRedirectURI(), "authorization_code");
         String basicAuth = Base64.getEncoder().encodeToString((config.getSpotifyClientID() + ":"
                 + config.getSpotifyClientSecret()).getBytes(StandardCharsets.UTF_8));
@@ -374,10 +433,9 @@ public class SpotifyAPI {
                 try {
                     JsonObject object = JsonParser.parseString(response.body().string()).getAsJsonObject();
 
-                    config.setValue("spotify.token", "Bearer " + object.get("access_token").getAsString());
-                    config.setValue("spotify.expiresAt", System.currentTimeMillis()
-                            + (object.get("expires_in").getAsInt() * 1000L));
                     config.setValue("spotify.refreshToken", object.get("refresh_token").getAsString());
+                    setAccessToken("Bearer " + object.get("access_token").getAsString(),
+                            System.currentTimeMillis() + (object.get("expires_in").getAsInt() * 1000L));
 
                     future.complete(true);
                 } catch (IOException e) {
@@ -397,8 +455,7 @@ public class SpotifyAPI {
         CompletableFuture<Object> future = new CompletableFuture<>();
 
         Config config = this.spotify.getRequest().getConfig();
-        String url = MessageFormat.format("https://accounts.spotify.com/api/token" +
-                        "?refresh_token={0}&grant_type={1}",
+        String url = MessageFormat.format("{0}?refresh_token={1}&grant_type={2}", this.tokenURL,
                 config.getSpotifyRefreshToken(), "refresh_token");
         String basicAuth = Base64.getEncoder().encodeToString((config.getSpotifyClientID() + ":"
                 + config.getSpotifyClientSecret()).getBytes(StandardCharsets.UTF_8));
@@ -430,11 +487,11 @@ public class SpotifyAPI {
                 try {
                     JsonObject object = JsonParser.parseString(response.body().string()).getAsJsonObject();
 
-                    config.setValue("spotify.token", "Bearer " + object.get("access_token").getAsString());
-                    config.setValue("spotify.expiresAt", System.currentTimeMillis()
+                    String accessToken = "Bearer " + object.get("access_token").getAsString();
+                    setAccessToken(accessToken, System.currentTimeMillis()
                             + (object.get("expires_in").getAsInt() * 1000L));
 
-                    future.complete(config.getSpotifyAccessToken());
+                    future.complete(accessToken);
                 } catch (IOException e) {
                     future.completeExceptionally(e);
                 }
@@ -445,13 +502,16 @@ public class SpotifyAPI {
     }
 
     /**
-     * Send a request with the post method and no response body when the execution was successful.
+     * Send a request with no response body when the execution was successful.
      *
-     * @param url The url of the api endpoint.
+     * @param url      The url of the api endpoint.
+     * @param method   The method used to access the endpoint.
+     * @param priority The priority of the request.
      * @return A completable future which contains a true boolean when the execution was successful.
      */
-    private CompletableFuture<Object> sendNoResponseBodyRequest(@NotNull String url, @NotNull HTTPMethod method) {
-        return this.sendRequest(url, method, (response, future) -> {
+    private CompletableFuture<Object> sendNoResponseBodyRequest(@NotNull String url, @NotNull HTTPMethod method,
+                                                                @NotNull Priority priority) {
+        return this.sendRequest(url, method, priority, (response, future) -> {
             if (future.isDone()) {
                 return;
             }
@@ -466,88 +526,186 @@ public class SpotifyAPI {
                 return;
             }
 
+            response.close();
             future.complete(true);
         });
     }
 
-    /**
-     * Send a request with the post method and no response body when the execution was successful.
-     *
-     * @param url The url of the api endpoint.
-     * @return A completable future which contains a true boolean when the execution was successful.
-     */
-    private CompletableFuture<Object> sendNoResponseBodyRequest(@NotNull String url) {
-        return this.sendNoResponseBodyRequest(url, HTTPMethod.POST);
-    }
-
     /**
      * Send a request to a specific api endpoint.
+     * The request is sent by the request scheduler within the rate limit and built at that time,
+     * so it carries the access token valid when it is actually sent.
+     * The timeout of a request starts once it is sent, so time spent waiting for the rate limit does not count,
+     * and a timed out call is canceled.
+     * Idempotent requests are retried on I/O failures and server errors, and every endpoint has a circuit breaker
+     * which fails fast while Spotify is down.
      *
      * @param url      The url of the api endpoint.
      * @param method   The method used to access the endpoint.
+     * @param priority The priority of the request.
      * @param consumer The response handling.
      * @return A completable future which may be already completed with an exception; otherwise not completed yet.
      */
-    private CompletableFuture<Object> sendRequest(@NotNull String url, @NotNull HTTPMethod method,
+    private CompletableFuture<Object> sendRequest(@NotNull String url, @NotNull HTTPMethod method, @NotNull Priority priority,
                                                   @NotNull BiConsumer<Response, CompletableFuture<Object>> consumer) {
         CompletableFuture<Object> future = new CompletableFuture<>();
-        this.getAccessToken().whenCompleteAsync((accessToken, throwable) -> {
+
+        SongRequest request = this.spotify.getRequest();
+        CircuitBreaker breaker = request.getCircuitBreakers().get(method, url);
+
+        CompletableFuture<Response> response = request.getRetryPolicy().execute(method.isIdempotent(), () ->
+                breaker.execute(() -> this.requestScheduler.submit(priority, () -> this.getAccessToken()
+                        .thenCompose(accessToken -> HTTPClientFactory.enqueue(this.client,
+                                        this.buildRequest(url, method, accessToken))
+                                .orTimeout(REQUEST_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS))
+                        .thenCompose(HTTPClientFactory::failOnServerError))));
+
+        response.whenCompleteAsync((o, throwable) -> {
             if (throwable != null) {
                 future.completeExceptionally(throwable);
                 return;
             }
 
-            Request.Builder builder = new Request.Builder()
-                    .url(url)
-                    .header("Authorization", this.spotify.getRequest().getConfig().getSpotifyAccessToken());
+            consumer.accept(o, future);
+        }, this.spotify.getRequest().getExecutor());
 
-            switch (method) {
-                case POST -> builder.post(RequestBody.create(new byte[0]))
-                        .header("Content-Type", "application/x-www-form-urlencoded");
-                case PUT -> builder.put(RequestBody.create(new byte[0]))
-                        .header("Content-Type", "application/x-www-form-urlencoded");
-                case GET -> builder.get();
-            }
+        // the cancel reaches the scheduler through the retry policy and the circuit breaker,
+        // which drops the request from the schedule when the caller gave up on it before it was sent
+        future.whenComplete((o, throwable) -> response.cancel(false));
+        return future;
+    }
 
-            this.client.newCall(builder.build()).enqueue(new Callback() {
-                @Override
-                public void onFailure(@NotNull Call call, @NotNull IOException e) {
-                    future.completeExceptionally(e);
-                }
+    /**
+     * Build a request to a specific api endpoint.
+     *
+     * @param url         The url of the api endpoint.
+     * @param method      The method used to access the endpoint.
+     * @param accessToken The access token including the "Bearer" prefix.
+     * @return The request.
+     */
+    private Request buildRequest(@NotNull String url, @NotNull HTTPMethod method, @NotNull String accessToken) {
+        Request.Builder builder = new Request.Builder()
+                .url(url)
+                .header("Authorization", accessToken);
+
+        switch (method) {
+            case POST -> builder.post(RequestBody.create(new byte[0]))
+                    .header("Content-Type", "application/x-www-form-urlencoded");
+            case PUT -> builder.put(RequestBody.create(new byte[0]))
+                    .header("Content-Type", "application/x-www-form-urlencoded");
+            case GET -> builder.get();
+        }
 
-                @Override
-                public void onResponse(@NotNull Call call, @NotNull Response response) {
-                    consumer.accept(response, future);
-                }
-            });
-        });
-        return future;
+        return builder.build();
     }
 
     /**
-     * Get the access token of the user.
-     * May be regenerated when the access token expires in less than 5 seconds or is already expired.
+     * Get the expiration timestamp of the current access token.
+     *
+     * @return The expiration timestamp in milliseconds.
+     */
+    public long getAccessTokenExpiresAt() {
+        return this.accessTokenExpiresAt;
+    }
+
+    /**
+     * Renew the access token regardless of its expiration.
+     * Joins a regeneration which is already in flight instead of starting another one.
      *
      * @return A completable future which contains the access token when the execution was successful.
      */
-    private CompletableFuture<String> getAccessToken() {
-        Config config = this.spotify.getRequest().getConfig();
+    public CompletableFuture<String> renewAccessToken() {
+        return this.renewAccessToken(true);
+    }
 
-        if ((config.getSpotifyExpiresAt() - 5000) > System.currentTimeMillis()) {
-            return CompletableFuture.completedFuture(config.getSpotifyAccessToken());
+    /**
+     * Get the access token of the user.
+     * The token is usually renewed ahead of time by the credential manager, so this only reads the current token.
+     * As a fallback it is regenerated when it expires in less than 5 seconds or is already expired.
+     *
+     * @return A completable future which contains the access token when the execution was successful.
+     */
+    CompletableFuture<String> getAccessToken() {
+        if (this.isAccessTokenValid()) {
+            return CompletableFuture.completedFuture(this.accessToken);
         }
 
-        CompletableFuture<String> future = new CompletableFuture<>();
+        return this.renewAccessToken(false);
+    }
 
-        this.regenerateAccessToken().whenCompleteAsync((o, throwable) -> {
-            if (throwable != null) {
-                future.completeExceptionally(throwable);
-                return;
+    /**
+     * Regenerate the access token, sharing a single in-flight regeneration between all concurrent callers.
+     *
+     * @param force Whether the token is regenerated although it is still valid.
+     * @return A completable future which contains the access token when the execution was successful.
+     */
+    private CompletableFuture<String> renewAccessToken(boolean force) {
+        while (true) {
+            CompletableFuture<String> current = this.tokenRefresh.get();
+
+            if (current != null) {
+                return current;
             }
-            future.complete(config.getSpotifyAccessToken());
-        });
 
-        return future;
+            CompletableFuture<String> future = new CompletableFuture<>();
+
+            if (this.tokenRefresh.compareAndSet(null, future)) {
+                // another regeneration may have finished between the expiry check and claiming the slot
+                if (!force && this.isAccessTokenValid()) {
+                    this.tokenRefresh.compareAndSet(future, null);
+                    future.complete(this.accessToken);
+                    return future;
+                }
+
+                this.refreshAccessToken(future);
+                return future;
+            }
+        }
+    }
+
+    /**
+     * Regenerate the access token and complete the shared refresh future.
+     * The future is released before it is completed, so callers arriving afterwards either see the new token
+     * or start a fresh regeneration after a failure.
+     *
+     * @param future The future shared by all callers waiting for this regeneration.
+     */
+    private void refreshAccessToken(@NotNull CompletableFuture<String> future) {
+        this.regenerateAccessToken()
+                .orTimeout(this.tokenRefreshTimeoutMillis, TimeUnit.MILLISECONDS)
+                .whenComplete((o, throwable) -> {
+                    this.tokenRefresh.compareAndSet(future, null);
+
+                    if (throwable != null) {
+                        future.completeExceptionally(throwable);
+                        return;
+                    }
+                    future.complete(this.accessToken);
+                });
+    }
+
+    /**
+     * Check whether the access token is still valid for at least 5 seconds.
+     *
+     * @return True when the access token can be used.
+     */
+    private boolean isAccessTokenValid() {
+        return (this.accessTokenExpiresAt - 5000) > System.currentTimeMillis();
+    }
+
+    /**
+     * Publish a new access token and store it in the config.
+     *
+     * @param accessToken The access token including the "Bearer" prefix.
+     * @param expiresAt   The expiration timestamp in milliseconds.
+     */
+    private void setAccessToken(@NotNull String accessToken, long expiresAt) {
+        Config config = this.spotify.getRequest().getConfig();
+        config.setValue("spotify.token", accessToken);
+        config.setValue("spotify.expiresAt", expiresAt);
+
+        this.accessToken = accessToken;
+        this.accessTokenExpiresAt = expiresAt;
     }
 
 }
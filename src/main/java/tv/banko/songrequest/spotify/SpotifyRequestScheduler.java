@@ -0,0 +1,263 @@
+package tv.banko.songrequest.spotify;
+
+import okhttp3.Response;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import tv.banko.songrequest.util.TokenBucket;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Schedules the requests to the Spotify api within the rate limit.
+ * Requests are sent while a token bucket estimating the remaining budget has tokens left, user-visible requests first.
+ * When Spotify answers with 429, all requests are parked for the duration of the Retry-After header and the limited
+ * request is sent again once the window reopens, instead of failing it.
+ */
+public class SpotifyRequestScheduler {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SpotifyRequestScheduler.class);
+
+    private static final double BUCKET_CAPACITY = 20;
+    private static final double TOKENS_PER_SECOND = 5;
+    private static final long DEFAULT_RETRY_AFTER_MILLIS = TimeUnit.SECONDS.toMillis(1);
+    private static final int MAX_RATE_LIMITED_ATTEMPTS = 5;
+
+    private final ScheduledExecutorService scheduler;
+    private final Map<Priority, Deque<Task>> queues;
+    private final TokenBucket bucket;
+
+    private long blockedUntil;
+    private ScheduledFuture<?> wakeUp;
+
+    private long throttledMillis;
+    private long rateLimitedResponses;
+
+    public SpotifyRequestScheduler(@NotNull ScheduledExecutorService scheduler) {
+        this.scheduler = scheduler;
+        this.queues = new EnumMap<>(Priority.class);
+        this.bucket = new TokenBucket(BUCKET_CAPACITY, TOKENS_PER_SECOND);
+        this.blockedUntil = System.nanoTime();
+
+        for (Priority priority : Priority.values()) {
+            this.queues.put(priority, new ArrayDeque<>());
+        }
+    }
+
+    /**
+     * Schedule a request.
+     * The call is started once the rate limit allows it, so the request should be built within the call,
+     * e.g. with the access token valid at that time.
+     * Completing or canceling the returned future before the call was started drops the request.
+     *
+     * @param priority The priority of the request.
+     * @param call     The supplier sending the request.
+     * @return A completable future which contains the response once it was not rate limited.
+     */
+    public CompletableFuture<Response> submit(@NotNull Priority priority, @NotNull Supplier<CompletableFuture<Response>> call) {
+        Task task = new Task(priority, call);
+        this.enqueue(task, false);
+        return task.future;
+    }
+
+    /**
+     * Get the amount of requests waiting to be sent.
+     *
+     * @return The amount of requests.
+     */
+    public synchronized int getQueueDepth() {
+        return this.queues.values().stream().mapToInt(Deque::size).sum();
+    }
+
+    /**
+     * Get the time until the requests are sent again after a 429 response.
+     *
+     * @return The time in milliseconds, or 0 when the requests are not throttled.
+     */
+    public synchronized long getThrottleMillis() {
+        return Math.max(0, TimeUnit.NANOSECONDS.toMillis(this.blockedUntil - System.nanoTime()));
+    }
+
+    /**
+     * Get the total time the requests were throttled by 429 responses.
+     *
+     * @return The time in milliseconds.
+     */
+    public synchronized long getThrottledMillis() {
+        return this.throttledMillis;
+    }
+
+    /**
+     * Get the amount of 429 responses.
+     *
+     * @return The amount of responses.
+     */
+    public synchronized long getRateLimitedResponses() {
+        return this.rateLimitedResponses;
+    }
+
+    private void enqueue(@NotNull Task task, boolean first) {
+        synchronized (this) {
+            Deque<Task> queue = this.queues.get(task.priority);
+
+            if (first) {
+                queue.addFirst(task);
+            } else {
+                queue.addLast(task);
+            }
+        }
+
+        this.drain();
+    }
+
+    /**
+     * Send the queued requests the rate limit allows and wake up once the next one may be sent.
+     */
+    private void drain() {
+        List<Task> dispatch = new ArrayList<>();
+
+        synchronized (this) {
+            long now = System.nanoTime();
+            Task task;
+
+            while ((task = this.poll()) != null) {
+                if (this.blockedUntil - now > 0 || !this.bucket.tryAcquire()) {
+                    this.queues.get(task.priority).addFirst(task);
+                    this.scheduleWakeUp(Math.max(this.blockedUntil - now, this.bucket.getNanosUntilAvailable()));
+                    break;
+                }
+
+                dispatch.add(task);
+            }
+        }
+
+        dispatch.forEach(this::dispatch);
+    }
+
+    @Nullable
+    private Task poll() {
+        for (Priority priority : Priority.values()) {
+            Deque<Task> queue = this.queues.get(priority);
+            Task task;
+
+            while ((task = queue.pollFirst()) != null) {
+                if (!task.future.isDone()) {
+                    return task;
+                }
+            }
+        }
+
+        return null;
+    }
+
+    private void scheduleWakeUp(long nanos) {
+        if (this.wakeUp != null) {
+            return;
+        }
+
+        this.wakeUp = this.scheduler.schedule(this::onWakeUp, nanos, TimeUnit.NANOSECONDS);
+    }
+
+    private void onWakeUp() {
+        synchronized (this) {
+            this.wakeUp = null;
+        }
+
+        this.drain();
+    }
+
+    private void dispatch(@NotNull Task task) {
+        CompletableFuture<Response> call;
+
+        try {
+            call = task.call.get();
+        } catch (Exception e) {
+            call = CompletableFuture.failedFuture(e);
+        }
+
+        call.whenComplete((response, throwable) -> {
+            if (throwable != null) {
+                task.future.completeExceptionally(throwable);
+                return;
+            }
+
+            if (response.code() == 429 && task.attempts < MAX_RATE_LIMITED_ATTEMPTS) {
+                long retryAfter = getRetryAfterMillis(response);
+                response.close();
+
+                task.attempts++;
+                this.throttle(retryAfter);
+                this.enqueue(task, true);
+                return;
+            }
+
+            if (!task.future.complete(response)) {
+                response.close();
+            }
+        });
+    }
+
+    private synchronized void throttle(long retryAfterMillis) {
+        long now = System.nanoTime();
+        long until = now + TimeUnit.MILLISECONDS.toNanos(retryAfterMillis);
+
+        this.throttledMillis += TimeUnit.NANOSECONDS.toMillis(Math.max(0, until - Math.max(now, this.blockedUntil)));
+        this.rateLimitedResponses++;
+        this.blockedUntil = Math.max(this.blockedUntil, until);
+        this.bucket.drain();
+
+        LOGGER.warn("Spotify rate limit reached, pausing requests for {} ms ({} queued)", retryAfterMillis,
+                this.getQueueDepth());
+    }
+
+    private static long getRetryAfterMillis(@NotNull Response response) {
+        String retryAfter = response.header("Retry-After");
+
+        if (retryAfter == null) {
+            return DEFAULT_RETRY_AFTER_MILLIS;
+        }
+
+        try {
+            return TimeUnit.SECONDS.toMillis(Math.max(1, Long.parseLong(retryAfter.trim())));
+        } catch (NumberFormatException e) {
+            return DEFAULT_RETRY_AFTER_MILLIS;
+        }
+    }
+
+    /**
+     * The priority of a request; requests of a higher priority are sent first.
+     */
+    public enum Priority {
+
+        /**
+         * Requests the viewer is waiting for, e.g. adding a song to the queue or skipping a song.
+         */
+        HIGH,
+
+        /**
+         * Requests in the background, e.g. appending to the playlist or reading the queue.
+         */
+        LOW
+    }
+
+    private static final class Task {
+
+        private final Priority priority;
+        private final Supplier<CompletableFuture<Response>> call;
+        private final CompletableFuture<Response> future;
+
+        private int attempts;
+
+        private Task(@NotNull Priority priority, @NotNull Supplier<CompletableFuture<Response>> call) {
+            this.priority = priority;
+            this.call = call;
+            this.future = new CompletableFuture<>();
+        }
+    }
+}
@@ -0,0 +1,233 @@
+package tv.banko.songrequest.spotify;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Decodes the Spotify responses straight from the response stream.
+ * Only the needed fields are read; decoding stops as soon as they are found, and everything else is skipped
+ * without building a json tree or reading the whole payload into a string.
+ */
+final class SpotifyResponseDecoder {
+
+    private SpotifyResponseDecoder() {
+    }
+
+    /**
+     * Decode the first songs of a queue response (/v1/me/player/queue).
+     *
+     * @param reader The response body.
+     * @param limit  The maximum amount of songs.
+     * @return A List of Strings with the song's name and the artist's name.
+     * @throws IOException When the response could not be read.
+     */
+    static List<String> decodeQueue(@NotNull Reader reader, int limit) throws IOException {
+        JsonReader json = new JsonReader(reader);
+        json.beginObject();
+
+        while (json.hasNext()) {
+            if (!json.nextName().equals("queue") || json.peek() != JsonToken.BEGIN_ARRAY) {
+                json.skipValue();
+                continue;
+            }
+
+            List<String> list = new ArrayList<>();
+            json.beginArray();
+
+            while (list.size() < limit && json.hasNext()) {
+                TrackInfo track = decodeTrack(json);
+
+                // local files have no id
+                if (track == null) {
+                    continue;
+                }
+
+                list.add("\"" + track.name() + "\" - " + String.join(", ", track.artists()));
+            }
+
+            return list;
+        }
+
+        return Collections.emptyList();
+    }
+
+    /**
+     * Decode the first track of a search response (/v1/search).
+     *
+     * @param reader The response body.
+     * @return The metadata of the first track or null when no track was found.
+     * @throws IOException When the response could not be read.
+     */
+    @Nullable
+    static TrackInfo decodeSearch(@NotNull Reader reader) throws IOException {
+        JsonReader json = new JsonReader(reader);
+        json.beginObject();
+
+        while (json.hasNext()) {
+            if (!json.nextName().equals("tracks")) {
+                json.skipValue();
+                continue;
+            }
+
+            json.beginObject();
+
+            while (json.hasNext()) {
+                if (!json.nextName().equals("items")) {
+                    json.skipValue();
+                    continue;
+                }
+
+                json.beginArray();
+
+                while (json.hasNext()) {
+                    TrackInfo track = decodeTrack(json);
+
+                    if (track != null) {
+                        return track;
+                    }
+                }
+
+                return null;
+            }
+
+            return null;
+        }
+
+        return null;
+    }
+
+    /**
+     * Decode a track response (/v1/tracks/{id}).
+     *
+     * @param reader The response body.
+     * @return The metadata of the track.
+     * @throws IOException When the response could not be read.
+     */
+    static TrackInfo decodeTrack(@NotNull Reader reader) throws IOException {
+        TrackInfo track = decodeTrack(new JsonReader(reader));
+
+        if (track == null) {
+            throw new IOException("Track without id or name");
+        }
+
+        return track;
+    }
+
+    /**
+     * Decode the playback progress of a currently playing response (/v1/me/player/currently-playing).
+     *
+     * @param reader The response body.
+     * @return The progress in milliseconds; 0 when nothing is playing.
+     * @throws IOException When the response could not be read.
+     */
+    static int decodeProgress(@NotNull Reader reader) throws IOException {
+        JsonReader json = new JsonReader(reader);
+        json.beginObject();
+
+        while (json.hasNext()) {
+            if (!json.nextName().equals("progress_ms") || json.peek() == JsonToken.NULL) {
+                json.skipValue();
+                continue;
+            }
+
+            return json.nextInt();
+        }
+
+        return 0;
+    }
+
+    /**
+     * Decode a track object, skipping all fields except the id, the name and the names of the artists.
+     *
+     * @param json The reader positioned in front of the track object.
+     * @return The metadata of the track or null when it has no id or name, e.g. a local file.
+     * @throws IOException When the response could not be read.
+     */
+    @Nullable
+    private static TrackInfo decodeTrack(@NotNull JsonReader json) throws IOException {
+        if (json.peek() == JsonToken.NULL) {
+            json.nextNull();
+            return null;
+        }
+
+        String id = null;
+        String name = null;
+        List<String> artists = new ArrayList<>();
+
+        json.beginObject();
+
+        while (json.hasNext()) {
+            switch (json.nextName()) {
+                case "id" -> id = nextNullableString(json);
+                case "name" -> name = nextNullableString(json);
+                case "artists" -> {
+                    if (json.peek() != JsonToken.BEGIN_ARRAY) {
+                        json.skipValue();
+                        continue;
+                    }
+
+                    json.beginArray();
+
+                    while (json.hasNext()) {
+                        artists.add(decodeName(json));
+                    }
+
+                    json.endArray();
+                }
+                default -> json.skipValue();
+            }
+        }
+
+        json.endObject();
+
+        if (id == null || name == null) {
+            return null;
+        }
+
+        return new TrackInfo("spotify:track:" + id, name, artists);
+    }
+
+    /**
+     * Decode the name of an object, skipping all other fields.
+     *
+     * @param json The reader positioned in front of the object.
+     * @return The name.
+     * @throws IOException When the response could not be read.
+     */
+    private static String decodeName(@NotNull JsonReader json) throws IOException {
+        String name = "";
+
+        json.beginObject();
+
+        while (json.hasNext()) {
+            if (json.nextName().equals("name")) {
+                name = Objects.requireNonNullElse(nextNullableString(json), "");
+                continue;
+            }
+
+            json.skipValue();
+        }
+
+        json.endObject();
+        return name;
+    }
+
+    @Nullable
+    private static String nextNullableString(@NotNull JsonReader json) throws IOException {
+        if (json.peek() == JsonToken.NULL) {
+            json.nextNull();
+            return null;
+        }
+
+        return json.nextString();
+    }
+}
@@ -0,0 +1,28 @@
+package tv.banko.songrequest.spotify;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+
+/**
+ * The metadata of a track needed to queue it and to confirm it in the chat.
+ *
+ * @param uri     The uri of the track (spotify:track:<ID>).
+ * @param name    The name of the track.
+ * @param artists The names of the artists.
+ */
+public record TrackInfo(@NotNull String uri, @NotNull String name, @NotNull List<String> artists) {
+
+    public TrackInfo {
+        artists = List.copyOf(artists);
+    }
+
+    /**
+     * Get the name and the artists of the track as shown in the chat.
+     *
+     * @return The name and the artists of the track.
+     */
+    public String getDisplayName() {
+        return this.name + " - " + String.join(", ", this.artists);
+    }
+}
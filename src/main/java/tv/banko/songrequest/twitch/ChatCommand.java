@@ -0,0 +1,29 @@
+package tv.banko.songrequest.twitch;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * A chat message split into the command and its arguments.
+ *
+ * @param name The lower-cased command including the prefix, e.g. "!queue".
+ * @param args The arguments following the command.
+ */
+public record ChatCommand(@NotNull String name, @NotNull List<String> args) {
+
+    /**
+     * Parse a chat message.
+     *
+     * @param message The chat message.
+     * @return The command of the message.
+     */
+    public static ChatCommand parse(@NotNull String message) {
+        String[] messageSplit = message.split(" ");
+        String command = messageSplit[0].toLowerCase(Locale.ROOT);
+
+        return new ChatCommand(command, Arrays.asList(messageSplit).subList(1, messageSplit.length));
+    }
+}
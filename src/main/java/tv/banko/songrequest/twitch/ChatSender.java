@@ -0,0 +1,282 @@
+package tv.banko.songrequest.twitch;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import tv.banko.songrequest.config.ConfigSnapshot;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Sends the chat messages of the bot within the chat rate limit.
+ * Messages wait in a queue until fewer messages than the rate class allows were sent within the sliding period,
+ * so no period of that length ever holds more messages than the limit; the rate class is read from the config
+ * before every message. Waiting messages are merged into a single message up to the length limit, and messages
+ * waiting longer than the maximum delay are dropped, since a confirmation arriving that late is of no use to the viewer.
+ */
+public class ChatSender {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ChatSender.class);
+
+    private static final int MAX_MESSAGE_LENGTH = 500;
+    private static final String SEPARATOR = " | ";
+
+    private final ScheduledExecutorService scheduler;
+    private final Supplier<ConfigSnapshot.ChatConfig> config;
+    private final Predicate<String> sender;
+    private final LongSupplier clock;
+    private final Deque<Message> queue;
+    private final Deque<Long> sentAt;
+
+    private ScheduledFuture<?> wakeUp;
+
+    private long sent;
+    private long merged;
+    private long dropped;
+    private long totalLatencyNanos;
+    private long maxLatencyNanos;
+
+    /**
+     * @param scheduler The scheduler waking up the sender once the rate limit allows sending again.
+     * @param config    The supplier of the chat settings.
+     * @param sender    The function sending a message to the chat, returning false when it was not accepted.
+     */
+    public ChatSender(@NotNull ScheduledExecutorService scheduler, @NotNull Supplier<ConfigSnapshot.ChatConfig> config,
+                      @NotNull Predicate<String> sender) {
+        this(scheduler, config, sender, System::nanoTime);
+    }
+
+    /**
+     * @param scheduler The scheduler waking up the sender once the rate limit allows sending again.
+     * @param config    The supplier of the chat settings.
+     * @param sender    The function sending a message to the chat, returning false when it was not accepted.
+     * @param clock     The clock returning the current time in nanoseconds.
+     */
+    ChatSender(@NotNull ScheduledExecutorService scheduler, @NotNull Supplier<ConfigSnapshot.ChatConfig> config,
+               @NotNull Predicate<String> sender, @NotNull LongSupplier clock) {
+        this.scheduler = scheduler;
+        this.config = config;
+        this.sender = sender;
+        this.clock = clock;
+        this.queue = new ArrayDeque<>();
+        this.sentAt = new ArrayDeque<>();
+    }
+
+    /**
+     * Queue a message mentioning users.
+     *
+     * @param users   The names of the users.
+     * @param message The message.
+     */
+    public void send(@NotNull Collection<String> users, @NotNull String message) {
+        StringBuilder builder = new StringBuilder();
+
+        for (String user : users) {
+            builder.append('@').append(user).append(' ');
+        }
+
+        builder.append("► ").append(message);
+
+        synchronized (this) {
+            this.queue.addLast(new Message(builder.toString(), this.clock.getAsLong()));
+        }
+
+        this.drain();
+    }
+
+    /**
+     * Get the amount of messages waiting to be sent.
+     *
+     * @return The amount of messages.
+     */
+    public synchronized int getQueueDepth() {
+        return this.queue.size();
+    }
+
+    /**
+     * Get the amount of sent chat messages.
+     *
+     * @return The amount of messages.
+     */
+    public synchronized long getSent() {
+        return this.sent;
+    }
+
+    /**
+     * Get the amount of queued messages which were merged into another message.
+     *
+     * @return The amount of messages.
+     */
+    public synchronized long getMerged() {
+        return this.merged;
+    }
+
+    /**
+     * Get the amount of messages dropped because they waited too long.
+     *
+     * @return The amount of messages.
+     */
+    public synchronized long getDropped() {
+        return this.dropped;
+    }
+
+    /**
+     * Get the average time between queueing and sending a message.
+     *
+     * @return The time in milliseconds.
+     */
+    public synchronized long getAverageLatencyMillis() {
+        long messages = this.sent + this.merged;
+        return messages == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(this.totalLatencyNanos / messages);
+    }
+
+    /**
+     * Get the longest time between queueing and sending a message.
+     *
+     * @return The time in milliseconds.
+     */
+    public synchronized long getMaxLatencyMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(this.maxLatencyNanos);
+    }
+
+    private void drain() {
+        String message;
+
+        while ((message = this.next()) != null) {
+            if (!this.sender.test(message)) {
+                LOGGER.warn("Chat message was not accepted: {}", message);
+            }
+        }
+    }
+
+    /**
+     * Take the next message the rate limit allows to send, merged with the messages queued after it.
+     *
+     * @return The message or null when nothing can be sent now.
+     */
+    @Nullable
+    private synchronized String next() {
+        long now = this.clock.getAsLong();
+        ConfigSnapshot.ChatConfig config = this.config.get();
+        long maxDelay = TimeUnit.MILLISECONDS.toNanos(config.maxDelayMillis());
+
+        while (!this.queue.isEmpty() && now - this.queue.peekFirst().queuedAt() > maxDelay) {
+            Message message = this.queue.pollFirst();
+            this.dropped++;
+            LOGGER.warn("Dropping chat message after {} ms: {}", TimeUnit.NANOSECONDS.toMillis(now - message.queuedAt()),
+                    message.text());
+        }
+
+        if (this.queue.isEmpty()) {
+            return null;
+        }
+
+        long period = RateClass.PERIOD.toNanos();
+
+        while (!this.sentAt.isEmpty() && now - this.sentAt.peekFirst() >= period) {
+            this.sentAt.pollFirst();
+        }
+
+        // a rate class lowered by a config reload may leave more messages in the period than it allows
+        if (this.sentAt.size() >= RateClass.parse(config.rateClass()).getMessages()) {
+            this.scheduleWakeUp(this.sentAt.peekFirst() + period - now);
+            return null;
+        }
+
+        this.sentAt.addLast(now);
+
+        Message first = this.queue.pollFirst();
+        StringBuilder builder = new StringBuilder(first.text());
+        this.record(first, now);
+
+        while (!this.queue.isEmpty()
+                && builder.length() + SEPARATOR.length() + this.queue.peekFirst().text().length() <= MAX_MESSAGE_LENGTH) {
+            Message message = this.queue.pollFirst();
+            builder.append(SEPARATOR).append(message.text());
+            this.record(message, now);
+            this.merged++;
+        }
+
+        this.sent++;
+
+        return builder.length() > MAX_MESSAGE_LENGTH ? builder.substring(0, MAX_MESSAGE_LENGTH) : builder.toString();
+    }
+
+    private void record(@NotNull Message message, long now) {
+        long latency = now - message.queuedAt();
+        this.totalLatencyNanos += latency;
+        this.maxLatencyNanos = Math.max(this.maxLatencyNanos, latency);
+    }
+
+    private void scheduleWakeUp(long nanos) {
+        if (this.wakeUp != null) {
+            return;
+        }
+
+        this.wakeUp = this.scheduler.schedule(this::onWakeUp, nanos, TimeUnit.NANOSECONDS);
+    }
+
+    private void onWakeUp() {
+        synchronized (this) {
+            this.wakeUp = null;
+        }
+
+        this.drain();
+    }
+
+    /**
+     * The chat rate limits of Twitch, by the role of the sending account.
+     */
+    public enum RateClass {
+        USER(20), MODERATOR(100), VERIFIED(7500);
+
+        /**
+         * The period the messages of a rate class are counted in.
+         */
+        public static final Duration PERIOD = Duration.ofSeconds(30);
+
+        private final int messages;
+
+        RateClass(int messages) {
+            this.messages = messages;
+        }
+
+        /**
+         * Parse the rate class from the config.
+         *
+         * @param value The value from the config, e.g. "moderator".
+         * @return The rate class; {@link #USER} when the value is unknown.
+         */
+        public static RateClass parse(@NotNull String value) {
+            for (RateClass rateClass : values()) {
+                if (rateClass.name().equalsIgnoreCase(value)) {
+                    return rateClass;
+                }
+            }
+
+            return USER;
+        }
+
+        /**
+         * Get the amount of messages allowed per period.
+         *
+         * @return The amount of messages.
+         */
+        public int getMessages() {
+            return messages;
+        }
+    }
+
+    private record Message(String text, long queuedAt) {
+    }
+}
@@ -0,0 +1,119 @@
+package tv.banko.songrequest.twitch;
+
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+
+/**
+ * Answers a read-only chat command once for all users requesting it within a short window.
+ * The answer is fetched once per window and sent as a single message mentioning up to a maximum of users;
+ * further users are mentioned in additional messages.
+ */
+public class CommandCoalescer {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CommandCoalescer.class);
+
+    private final ScheduledExecutorService scheduler;
+    private final Executor executor;
+    private final long windowMillis;
+    private final int maxMentions;
+    private final Supplier<CompletableFuture<String>> answer;
+    private final BiConsumer<List<String>, String> sender;
+
+    private Set<String> pending;
+    private long requests;
+    private long replies;
+
+    /**
+     * @param scheduler    The scheduler closing the windows.
+     * @param executor     The executor sending the answers.
+     * @param windowMillis The time requests are collected after the first one.
+     * @param maxMentions  The maximum amount of users mentioned in one message.
+     * @param answer       The supplier fetching the answer.
+     * @param sender       The action sending the answer to the users.
+     */
+    public CommandCoalescer(@NotNull ScheduledExecutorService scheduler, @NotNull Executor executor, long windowMillis,
+                            int maxMentions, @NotNull Supplier<CompletableFuture<String>> answer,
+                            @NotNull BiConsumer<List<String>, String> sender) {
+        this.scheduler = scheduler;
+        this.executor = executor;
+        this.windowMillis = windowMillis;
+        this.maxMentions = maxMentions;
+        this.answer = answer;
+        this.sender = sender;
+    }
+
+    /**
+     * Request the answer for a user.
+     *
+     * @param user The name of the user.
+     */
+    public synchronized void request(@NotNull String user) {
+        this.requests++;
+
+        if (this.pending == null) {
+            this.pending = new LinkedHashSet<>();
+            this.scheduler.schedule(this::flush, this.windowMillis, TimeUnit.MILLISECONDS);
+        }
+
+        this.pending.add(user);
+    }
+
+    /**
+     * Get the amount of requests.
+     *
+     * @return The amount of requests.
+     */
+    public synchronized long getRequests() {
+        return this.requests;
+    }
+
+    /**
+     * Get the amount of sent messages.
+     *
+     * @return The amount of messages.
+     */
+    public synchronized long getReplies() {
+        return this.replies;
+    }
+
+    private void flush() {
+        List<String> users;
+
+        synchronized (this) {
+            users = new ArrayList<>(this.pending);
+            this.pending = null;
+        }
+
+        CompletableFuture<String> answer;
+
+        try {
+            answer = this.answer.get();
+        } catch (Exception e) {
+            answer = CompletableFuture.failedFuture(e);
+        }
+
+        answer.whenCompleteAsync((message, throwable) -> {
+            if (throwable != null) {
+                LOGGER.error("Answering {} users failed", users.size(), throwable);
+                return;
+            }
+
+            for (int i = 0; i < users.size(); i += this.maxMentions) {
+                this.sender.accept(users.subList(i, Math.min(users.size(), i + this.maxMentions)), message);
+
+                synchronized (this) {
+                    this.replies++;
+                }
+            }
+        }, this.executor);
+    }
+}
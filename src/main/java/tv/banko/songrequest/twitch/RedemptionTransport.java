@@ -0,0 +1,35 @@
+package tv.banko.songrequest.twitch;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * The transports redemptions can be received with.
+ */
+public enum RedemptionTransport {
+
+    /**
+     * The deprecated PubSub topic of channel point redemptions.
+     */
+    PUBSUB,
+
+    /**
+     * The EventSub WebSocket subscription to channel.channel_points_custom_reward_redemption.add.
+     */
+    EVENTSUB;
+
+    /**
+     * Parse the transport from the config.
+     *
+     * @param value The value from the config, e.g. "eventsub".
+     * @return The transport; {@link #PUBSUB} when the value is unknown.
+     */
+    public static RedemptionTransport parse(@NotNull String value) {
+        for (RedemptionTransport transport : values()) {
+            if (transport.name().equalsIgnoreCase(value)) {
+                return transport;
+            }
+        }
+
+        return PUBSUB;
+    }
+}
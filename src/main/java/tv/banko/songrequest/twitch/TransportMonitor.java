@@ -0,0 +1,193 @@
+package tv.banko.songrequest.twitch;
+
+import com.github.twitch4j.client.websocket.domain.WebsocketConnectionState;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Monitors the connection of the EventSub WebSocket and the delivery latency of redemptions per transport.
+ * The socket answers missed keepalives and session_reconnect messages itself; the monitor reports the resulting
+ * connection changes, warns while the socket stays disconnected and when a reconnect started a new session,
+ * since redemptions made in between are not delivered again.
+ */
+public class TransportMonitor {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TransportMonitor.class);
+
+    private static final long CHECK_INTERVAL_SECONDS = 10;
+    private static final long MAX_DISCONNECTED_MILLIS = TimeUnit.SECONDS.toMillis(30);
+
+    private final Map<RedemptionTransport, Latency> latencies;
+
+    private WebsocketConnectionState state;
+    private long disconnectedSince;
+    private boolean disconnectReported;
+    private String sessionId;
+    private long reconnects;
+    private long sessionChanges;
+
+    public TransportMonitor() {
+        this.latencies = new EnumMap<>(RedemptionTransport.class);
+
+        for (RedemptionTransport transport : RedemptionTransport.values()) {
+            this.latencies.put(transport, new Latency());
+        }
+    }
+
+    /**
+     * Start checking the connection of the socket periodically.
+     *
+     * @param scheduler The scheduler running the checks.
+     */
+    public void start(@NotNull ScheduledExecutorService scheduler) {
+        scheduler.scheduleWithFixedDelay(this::check, CHECK_INTERVAL_SECONDS, CHECK_INTERVAL_SECONDS, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Record the delivery of a redemption.
+     *
+     * @param transport  The transport the redemption was received with.
+     * @param redeemedAt The time of the redemption.
+     */
+    public synchronized void recordDelivery(@NotNull RedemptionTransport transport, @NotNull Instant redeemedAt) {
+        this.latencies.get(transport).record(Math.max(0, Duration.between(redeemedAt, Instant.now()).toMillis()));
+    }
+
+    /**
+     * Record a change of the connection state of the socket.
+     *
+     * @param state The new state.
+     */
+    public synchronized void onStateChange(@NotNull WebsocketConnectionState state) {
+        WebsocketConnectionState previous = this.state;
+        this.state = state;
+
+        if (state == WebsocketConnectionState.CONNECTED) {
+            if (this.disconnectedSince != 0) {
+                LOGGER.info("EventSub socket reconnected after {} ms",
+                        System.currentTimeMillis() - this.disconnectedSince);
+            }
+
+            this.disconnectedSince = 0;
+            this.disconnectReported = false;
+            return;
+        }
+
+        if (previous == WebsocketConnectionState.CONNECTED) {
+            this.reconnects++;
+            this.disconnectedSince = System.currentTimeMillis();
+            LOGGER.warn("EventSub socket left the connected state: {}", state);
+        }
+    }
+
+    /**
+     * Record the welcome message of a session.
+     * A reconnect over the session_reconnect url keeps the session id; a different id means a new session.
+     *
+     * @param sessionId The id of the session.
+     */
+    public synchronized void onWelcome(@NotNull String sessionId) {
+        if (this.sessionId != null && !this.sessionId.equals(sessionId)) {
+            this.sessionChanges++;
+            LOGGER.warn("EventSub session changed from {} to {}; redemptions in between were not delivered",
+                    this.sessionId, sessionId);
+        }
+
+        this.sessionId = sessionId;
+    }
+
+    /**
+     * Get the connection state of the socket.
+     *
+     * @return The state or null when the socket was not used yet.
+     */
+    @Nullable
+    public synchronized WebsocketConnectionState getState() {
+        return this.state;
+    }
+
+    /**
+     * Get the amount of times the socket lost its connection.
+     *
+     * @return The amount of reconnects.
+     */
+    public synchronized long getReconnects() {
+        return this.reconnects;
+    }
+
+    /**
+     * Get the amount of reconnects which started a new session instead of resuming the previous one.
+     *
+     * @return The amount of session changes.
+     */
+    public synchronized long getSessionChanges() {
+        return this.sessionChanges;
+    }
+
+    /**
+     * Get the amount of redemptions received with a transport.
+     *
+     * @param transport The transport.
+     * @return The amount of redemptions.
+     */
+    public synchronized long getDeliveries(@NotNull RedemptionTransport transport) {
+        return this.latencies.get(transport).count;
+    }
+
+    /**
+     * Get the average time between a redemption and its delivery.
+     *
+     * @param transport The transport.
+     * @return The time in milliseconds.
+     */
+    public synchronized long getAverageLatencyMillis(@NotNull RedemptionTransport transport) {
+        Latency latency = this.latencies.get(transport);
+        return latency.count == 0 ? 0 : latency.totalMillis / latency.count;
+    }
+
+    /**
+     * Get the longest time between a redemption and its delivery.
+     *
+     * @param transport The transport.
+     * @return The time in milliseconds.
+     */
+    public synchronized long getMaxLatencyMillis(@NotNull RedemptionTransport transport) {
+        return this.latencies.get(transport).maxMillis;
+    }
+
+    private synchronized void check() {
+        if (this.disconnectedSince == 0 || this.disconnectReported) {
+            return;
+        }
+
+        long disconnected = System.currentTimeMillis() - this.disconnectedSince;
+
+        if (disconnected > MAX_DISCONNECTED_MILLIS) {
+            this.disconnectReported = true;
+            LOGGER.error("EventSub socket disconnected for {} ms ({}); redemptions are not received", disconnected,
+                    this.state);
+        }
+    }
+
+    private static class Latency {
+
+        private long count;
+        private long totalMillis;
+        private long maxMillis;
+
+        private void record(long millis) {
+            this.count++;
+            this.totalMillis += millis;
+            this.maxMillis = Math.max(this.maxMillis, millis);
+        }
+    }
+}
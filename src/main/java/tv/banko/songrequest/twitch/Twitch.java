@@ -6,296 +6,479 @@ import com.github.twitch4j.TwitchClientBuilder;
 import com.github.twitch4j.chat.events.channel.ChannelMessageEvent;
 import com.github.twitch4j.common.enums.CommandPermission;
 import com.github.twitch4j.eventsub.domain.RedemptionStatus;
+import com.github.twitch4j.eventsub.events.CustomRewardRedemptionAddEvent;
+import com.github.twitch4j.eventsub.socket.events.EventSocketConnectionStateEvent;
+import com.github.twitch4j.eventsub.socket.events.EventSocketWelcomedEvent;
+import com.github.twitch4j.eventsub.subscriptions.SubscriptionTypes;
 import com.github.twitch4j.helix.domain.CustomReward;
-import com.github.twitch4j.helix.domain.CustomRewardList;
+import com.github.twitch4j.helix.domain.CustomRewardRedemption;
 import com.github.twitch4j.helix.domain.UserList;
 import com.github.twitch4j.pubsub.events.RewardRedeemedEvent;
+import io.github.bucket4j.Bandwidth;
 import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import tv.banko.songrequest.SongRequest;
 import tv.banko.songrequest.config.Config;
-
-import java.util.Arrays;
-import java.util.Collections;
-import java.util.Objects;
+import tv.banko.songrequest.config.ConfigSnapshot;
+import tv.banko.songrequest.spotify.Spotify;
+import tv.banko.songrequest.twitch.reward.Redemption;
+import tv.banko.songrequest.twitch.reward.RedemptionDeduplicator;
+import tv.banko.songrequest.twitch.reward.RedemptionJournal;
+import tv.banko.songrequest.twitch.reward.RedemptionQueue;
+import tv.banko.songrequest.twitch.reward.RedemptionStatusBatcher;
+import tv.banko.songrequest.twitch.reward.RewardDispatcher;
+import tv.banko.songrequest.twitch.reward.RewardHandler;
+import tv.banko.songrequest.twitch.reward.RewardType;
+import tv.banko.songrequest.util.PhaseTimer;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.*;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
 
 public class Twitch {
 
+    private static final Logger LOGGER = LoggerFactory.getLogger(Twitch.class);
+
+    private static final long COMMAND_WINDOW_MILLIS = 1500;
+    private static final int MAX_MENTIONS = 10;
+
     private final SongRequest request;
 
-    private final OAuth2Credential clientCredentials;
     private final OAuth2Credential userCredentials;
-    private final TwitchClient client;
     private final TwitchAPI api;
-
-    private String broadcasterName;
-    private String broadcasterId;
+    private final RewardDispatcher rewards;
+    private final RedemptionQueue redemptions;
+    private final CommandCoalescer queueCommand;
+    private final ChatSender chat;
+    private final RedemptionStatusBatcher statuses;
+    private final TransportMonitor transportMonitor;
+    private final RedemptionDeduplicator deduplicator;
+    private final RedemptionJournal journal;
+
+    private volatile OAuth2Credential clientCredentials;
+    private volatile TwitchClient client;
+    private volatile String broadcasterName;
+    private volatile String broadcasterId;
+    private volatile RedemptionTransport transport;
 
     public Twitch(@NotNull SongRequest request) {
         this.request = request;
         this.api = new TwitchAPI(this);
+        this.userCredentials = new OAuth2Credential("", "");
+        this.rewards = new RewardDispatcher();
+        this.redemptions = new RedemptionQueue(request.getExecutor(),
+                () -> request.getConfig().getSnapshot().twitch().queue(), this::action);
+        this.queueCommand = new CommandCoalescer(request.getScheduler(), request.getExecutor(),
+                COMMAND_WINDOW_MILLIS, MAX_MENTIONS, this::getQueueMessage, this::sendMessage);
+        this.chat = new ChatSender(request.getScheduler(), () -> request.getConfig().getSnapshot().twitch().chat(),
+                message -> this.client.getChat().sendMessage(this.broadcasterName, message));
+        this.statuses = new RedemptionStatusBatcher(request.getScheduler(), request.getExecutor(),
+                this::updateRedemptionStatus);
+        this.transportMonitor = new TransportMonitor();
+        this.deduplicator = new RedemptionDeduplicator();
+        this.journal = new RedemptionJournal(Path.of("config", "journal"));
+        this.registerRewardHandlers();
+    }
 
-        Config config = request.getConfig();
+    /**
+     * Connect to Twitch.
+     * The client and the user credentials are requested in parallel; the client is built once both are present,
+     * followed by the broadcaster lookup and the creation of the rewards. The journal is read in parallel, and the
+     * redemptions it left unfinished are finished once the rewards exist. Redemptions are subscribed to last, once
+     * the rewards are routed to their handlers and the journal is open, so no redemption arrives before it can be
+     * handled and journaled.
+     *
+     * @param timer The timer of the startup.
+     * @return A completable future which completes when redemptions are received and handled.
+     */
+    public CompletableFuture<Void> start(@NotNull PhaseTimer timer) {
+        Executor executor = this.request.getExecutor();
+
+        CompletableFuture<OAuth2Credential> clientCredentials = timer.time("twitch client credentials",
+                () -> this.api.getClientCredentials().thenApply(OAuth2Credential.class::cast));
+        CompletableFuture<Boolean> userCredentials = timer.time("twitch user credentials", this::validateCredentials);
+        CompletableFuture<List<RedemptionJournal.Entry>> journal = timer.time("twitch journal",
+                () -> CompletableFuture.supplyAsync(this::openJournal, executor));
+
+        return clientCredentials.thenCombine(userCredentials, (credentials, valid) -> credentials)
+                .thenCompose(credentials -> timer.time("twitch client",
+                        () -> CompletableFuture.runAsync(() -> this.connect(credentials), executor)))
+                .thenCompose(o -> timer.time("twitch broadcaster",
+                        () -> CompletableFuture.runAsync(this::setUserID, executor)))
+                .thenCompose(o -> timer.time("twitch rewards", this::createRewards))
+                .thenCombine(journal, (o, entries) -> entries)
+                .thenCompose(entries -> timer.time("twitch journal replay",
+                        () -> CompletableFuture.runAsync(() -> this.replayJournal(entries), executor)))
+                .thenCompose(o -> timer.time("twitch redemptions",
+                        () -> CompletableFuture.runAsync(() -> this.listenForRedemptions(this.broadcasterId), executor)));
+    }
 
-        try {
-            this.clientCredentials = (OAuth2Credential) this.api.getClientCredentials().get();
-            this.userCredentials = new OAuth2Credential("", "");
-            this.validateCredentials().get();
-
-            this.client = TwitchClientBuilder.builder()
-                    .withEnablePubSub(true)
-                    .withEnableHelix(true)
-                    .withDefaultAuthToken(this.clientCredentials)
-                    .withEnableChat(true)
-                    .withChatAccount(this.userCredentials)
-                    .withClientId(config.getTwitchClientID())
-                    .build();
-
-            this.client.getChat().joinChannel(config.getTwitchChannelName());
-
-            this.setUserID();
-            this.client.getEventManager().onEvent(RewardRedeemedEvent.class, this::onRewardRedeem);
-            this.client.getEventManager().onEvent(ChannelMessageEvent.class, this::onChannelMessage);
-        } catch (InterruptedException | ExecutionException e) {
-            throw new RuntimeException(e);
+    /**
+     * Write the pending journal events before the application stops.
+     *
+     * @param timeoutMillis The maximum time to wait for the journal in milliseconds.
+     */
+    public void shutdown(long timeoutMillis) {
+        this.journal.close(timeoutMillis);
+    }
+
+    /**
+     * Build the twitch client, join the chat and register the listeners.
+     *
+     * @param clientCredentials The credentials of the application.
+     */
+    private void connect(@NotNull OAuth2Credential clientCredentials) {
+        Config config = this.request.getConfig();
+
+        ChatSender.RateClass rateClass = ChatSender.RateClass.parse(config.getSnapshot().twitch().chat().rateClass());
+
+        this.transport = RedemptionTransport.parse(config.getSnapshot().twitch().transport());
+        this.clientCredentials = clientCredentials;
+        this.client = TwitchClientBuilder.builder()
+                .withEnablePubSub(this.transport == RedemptionTransport.PUBSUB)
+                .withEnableEventSocket(this.transport == RedemptionTransport.EVENTSUB)
+                .withEnableHelix(true)
+                .withDefaultAuthToken(clientCredentials)
+                .withEnableChat(true)
+                .withChatAccount(this.userCredentials)
+                .withChatRateLimit(Bandwidth.builder()
+                        .capacity(rateClass.getMessages())
+                        .refillGreedy(rateClass.getMessages(), ChatSender.RateClass.PERIOD)
+                        .build())
+                .withClientId(config.getTwitchClientID())
+                .build();
+
+        this.client.getChat().joinChannel(config.getTwitchChannelName());
+
+        this.client.getEventManager().onEvent(RewardRedeemedEvent.class, event ->
+                this.onRewardRedeem(Redemption.fromPubSub(event), RedemptionTransport.PUBSUB));
+        this.client.getEventManager().onEvent(CustomRewardRedemptionAddEvent.class, event ->
+                this.onRewardRedeem(Redemption.fromEventSub(event), RedemptionTransport.EVENTSUB));
+        this.client.getEventManager().onEvent(EventSocketConnectionStateEvent.class, event ->
+                this.transportMonitor.onStateChange(event.getState()));
+        this.client.getEventManager().onEvent(EventSocketWelcomedEvent.class, event ->
+                this.transportMonitor.onWelcome(event.getSessionId()));
+        this.client.getEventManager().onEvent(ChannelMessageEvent.class, this::onChannelMessage);
+
+        if (this.transport == RedemptionTransport.EVENTSUB) {
+            this.transportMonitor.start(this.request.getScheduler());
         }
+
+        config.addListener(snapshot -> snapshot.twitch().redemption(), snapshot -> {
+            if (this.broadcasterId != null) {
+                this.createRewards().exceptionally(throwable -> {
+                    LOGGER.error("Updating the rewards failed", throwable);
+                    return null;
+                });
+            }
+        });
+        config.addListener(snapshot -> snapshot.twitch().channel(), snapshot ->
+                LOGGER.warn("The twitch channel changed to {}; restart to join it", snapshot.twitch().channel()));
+        config.addListener(snapshot -> snapshot.twitch().transport(), snapshot ->
+                LOGGER.warn("The twitch transport changed to {}; restart to use it", snapshot.twitch().transport()));
     }
 
     public void sendMessage(String user, String message) {
-        this.client.getChat().sendMessage(this.broadcasterName,
-                "@" + user + " ► " + message);
+        this.sendMessage(Collections.singletonList(user), message);
+    }
+
+    /**
+     * Send a message mentioning several users.
+     * The message is queued and sent within the chat rate limit, possibly merged with other queued messages.
+     *
+     * @param users   The names of the users.
+     * @param message The message.
+     */
+    public void sendMessage(Collection<String> users, String message) {
+        this.chat.send(users, message);
     }
 
     public SongRequest getRequest() {
         return request;
     }
 
+    /**
+     * Get the queue admitting the redemptions to their handlers.
+     *
+     * @return The redemption queue.
+     */
+    public RedemptionQueue getRedemptionQueue() {
+        return redemptions;
+    }
+
+    public CommandCoalescer getQueueCommand() {
+        return queueCommand;
+    }
+
+    public ChatSender getChatSender() {
+        return chat;
+    }
+
+    public RedemptionStatusBatcher getRedemptionStatusBatcher() {
+        return statuses;
+    }
+
+    public TransportMonitor getTransportMonitor() {
+        return transportMonitor;
+    }
+
+    public RedemptionDeduplicator getRedemptionDeduplicator() {
+        return deduplicator;
+    }
+
+    public RedemptionJournal getRedemptionJournal() {
+        return journal;
+    }
+
     /**
      * Listening for channel messages in the user's channel.
      *
      * @param event The channel message event.
      */
     private void onChannelMessage(@NotNull ChannelMessageEvent event) {
-        String[] messageSplit = event.getMessage().split(" ");
-        String command = messageSplit[0];
-        String[] args = Arrays.copyOfRange(messageSplit, 1, messageSplit.length);
+        ChatCommand command = ChatCommand.parse(event.getMessage());
 
-        switch (command.toLowerCase()) {
+        switch (command.name()) {
             case "!sr-spotify" -> {
-                if (!event.getPermissions().contains(CommandPermission.BROADCASTER)) {
+                if (!event.getPermissions().contains(CommandPermission.BROADCASTER) || command.args().isEmpty()) {
                     return;
                 }
 
-                this.validateCredentials().whenCompleteAsync((aBoolean, validateThrowable) ->
-                        this.request.getSpotify().getAPI().setAuthorizationFromCode(args[0]).whenCompleteAsync((o, authThrowable) -> {
-                            if (authThrowable != null) {
-                                authThrowable.printStackTrace();
-                                this.sendMessage(event.getUser().getName(), "Error: " + authThrowable.getClass().getSimpleName());
-                                return;
-                            }
+                this.request.getSpotify().getAPI().setAuthorizationFromCode(command.args().get(0)).whenCompleteAsync((o, authThrowable) -> {
+                    if (authThrowable != null) {
+                        authThrowable.printStackTrace();
+                        this.sendMessage(event.getUser().getName(), "Error: " + authThrowable.getClass().getSimpleName());
+                        return;
+                    }
 
-                            this.sendMessage(event.getUser().getName(), "SongRequest successfully connected.");
-                        }));
+                    this.sendMessage(event.getUser().getName(), "SongRequest successfully connected.");
+                }, this.request.getExecutor());
             }
-            case "!queue" -> this.request.getSpotify().getQueue().whenCompleteAsync((list, throwable) -> {
-                if (throwable != null) {
-                    throwable.printStackTrace();
-                    return;
-                }
-
-                StringBuilder builder = new StringBuilder();
+            case "!queue" -> this.queueCommand.request(event.getUser().getName());
+        }
+    }
 
-                for (int i = 0; i < list.size(); i++) {
-                    if (i != 0) {
-                        builder.append("; ");
-                    }
+    /**
+     * Get the queue as shown in the chat.
+     * The queue is cached by Spotify, so requests within its cache time do not call the api again.
+     *
+     * @return A completable future which contains the message when the execution was successful.
+     */
+    private CompletableFuture<String> getQueueMessage() {
+        return this.request.getSpotify().getQueue().thenApply(list -> {
+            StringBuilder builder = new StringBuilder();
 
-                    builder.append(list.get(i));
+            for (int i = 0; i < list.size(); i++) {
+                if (i != 0) {
+                    builder.append("; ");
                 }
 
-                if (builder.isEmpty()) {
-                    builder.append("Queue empty");
-                }
+                builder.append(list.get(i));
+            }
 
-                this.sendMessage(event.getUser().getName(), "Songs: " + builder);
-            });
-        }
+            if (builder.isEmpty()) {
+                builder.append("Queue empty");
+            }
+
+            return "Songs: " + builder;
+        });
     }
 
     /**
      * Listening for reward redemptions in the user's channel.
      *
-     * @param event The reward redeemed event.
+     * @param redemption The redemption.
+     * @param transport  The transport the redemption was received with.
      */
-    private void onRewardRedeem(@NotNull RewardRedeemedEvent event) {
-        String title = event.getRedemption().getReward().getTitle();
-
-        this.validateCredentials().whenCompleteAsync((aBoolean, throwable) -> {
-            if (title.equals(this.request.getConfig().getTwitchRedemptionAddSong())) {
-                String query = event.getRedemption().getUserInput();
-                this.request.getSpotify().getTrackId(query).whenCompleteAsync((trackIdObject, trackThrowable) -> {
-                    if (trackThrowable != null) {
-                        trackThrowable.printStackTrace();
-                        this.changeRedemptionStatus(event, RedemptionStatus.CANCELED);
-                        return;
-                    }
+    private void onRewardRedeem(@NotNull Redemption redemption, @NotNull RedemptionTransport transport) {
+        this.transportMonitor.recordDelivery(transport, redemption.redeemedAt());
 
-                    String trackId = (String) trackIdObject;
-                    this.request.getSpotify().addSongToQueue(trackId).whenCompleteAsync((song, actionThrowable) -> {
-                        this.sendMessage(event.getRedemption().getUser().getDisplayName(),
-                                "Der Song \"" + song + "\" wurde zur Warteschlange hinzugefügt.");
-                        this.action(event, actionThrowable);
-                    });
-                });
-                return;
-            }
-
-            if (title.equals(this.request.getConfig().getTwitchRedemptionSkipSong())) {
-                this.request.getSpotify().skipSong().whenCompleteAsync((o, actionThrowable) ->
-                        this.action(event, actionThrowable));
-                return;
-            }
+        if (!this.deduplicator.firstDelivery(redemption.id())) {
+            LOGGER.debug("Dropping redemption {} delivered again", redemption.id());
+            return;
+        }
 
-            if (title.equals(this.request.getConfig().getTwitchRedemptionPlayLastSong())) {
-                this.request.getSpotify().playLastSong().whenCompleteAsync((o, actionThrowable) ->
-                        this.action(event, actionThrowable));
-                return;
-            }
+        RewardHandler handler = this.rewards.getHandler(redemption.rewardId());
 
-            if (title.equals(this.request.getConfig().getTwitchRedemptionPausePlayback())) {
-                this.request.getSpotify().pausePlayback().whenCompleteAsync((o, actionThrowable) ->
-                        this.action(event, actionThrowable));
-                return;
-            }
+        if (handler == null) {
+            return;
+        }
 
-            if (title.equals(this.request.getConfig().getTwitchRedemptionStartPlayback())) {
-                this.request.getSpotify().startPlayback().whenCompleteAsync((o, actionThrowable) ->
-                        this.action(event, actionThrowable));
-                return;
-            }
+        this.journal.append(RedemptionJournal.Event.RECEIVED, redemption.id(), redemption.rewardId(), "");
+        this.redemptions.submit(redemption, handler);
+    }
 
-            if (title.equals(this.request.getConfig().getTwitchRedemptionSkipTenSeconds())) {
-                this.request.getSpotify().skipTenSeconds().whenCompleteAsync((o, actionThrowable) ->
-                        this.action(event, actionThrowable));
-                return;
-            }
+    /**
+     * Register the handlers of the reward types.
+     */
+    private void registerRewardHandlers() {
+        this.rewards.register(RewardType.ADD_SONG, this::addSong)
+                .register(RewardType.SKIP_SONG, redemption -> this.request.getSpotify().skipSong())
+                .register(RewardType.PLAY_LAST_SONG, redemption -> this.request.getSpotify().playLastSong())
+                .register(RewardType.SKIP_TEN_SECONDS, redemption -> this.request.getSpotify().skipTenSeconds())
+                .register(RewardType.PLAY_LAST_TEN_SECONDS, redemption -> this.request.getSpotify().playLastTenSeconds())
+                .register(RewardType.START_PLAYBACK, redemption -> this.request.getSpotify().startPlayback())
+                .register(RewardType.PAUSE_PLAYBACK, redemption -> this.request.getSpotify().pausePlayback());
+    }
 
-            if (title.equals(this.request.getConfig().getTwitchRedemptionPlayLastTenSeconds())) {
-                this.request.getSpotify().playLastTenSeconds().whenCompleteAsync((o, actionThrowable) ->
-                        this.action(event, actionThrowable));
-            }
-        });
+    /**
+     * Add the requested song to the queue and confirm it in the chat.
+     *
+     * @param redemption The redemption of the add song reward.
+     * @return A completable future which completes when the song was added.
+     */
+    private CompletableFuture<?> addSong(@NotNull Redemption redemption) {
+        Spotify spotify = this.request.getSpotify();
+        String query = Objects.requireNonNullElse(redemption.userInput(), "");
+
+        return spotify.getTrack(query)
+                .thenApply(track -> {
+                    this.journal.append(RedemptionJournal.Event.TRACK_RESOLVED, redemption.id(), redemption.rewardId(),
+                            track.uri());
+                    return track;
+                })
+                .thenComposeAsync(spotify::addSongToQueue, this.request.getExecutor())
+                .thenAccept(track -> this.sendMessage(redemption.userDisplayName(),
+                        "Der Song \"" + track.getDisplayName() + "\" wurde zur Warteschlange hinzugefügt."));
     }
 
     /**
      * Gets the user id of the broadcaster.
      */
     private void setUserID() {
-        new Thread(() -> {
-            Config config = this.request.getConfig();
+        Config config = this.request.getConfig();
 
-            UserList list = this.client.getHelix().getUsers(this.userCredentials.getAccessToken(), null,
-                    Collections.singletonList(config.getTwitchChannelName().toLowerCase())).execute();
+        UserList list = this.client.getHelix().getUsers(this.userCredentials.getAccessToken(), null,
+                Collections.singletonList(config.getTwitchChannelName().toLowerCase())).execute();
 
-            list.getUsers().forEach(user -> {
-                this.broadcasterName = user.getLogin();
-                this.broadcasterId = user.getId();
-                this.client.getPubSub().listenForChannelPointsRedemptionEvents(this.clientCredentials, user.getId());
-            });
+        if (list.getUsers().isEmpty()) {
+            throw new IllegalStateException("Channel '" + config.getTwitchChannelName() + "' not existing");
+        }
 
-            this.createRewards();
-        }).start();
+        list.getUsers().forEach(user -> {
+            this.broadcasterName = user.getLogin();
+            this.broadcasterId = user.getId();
+        });
     }
 
     /**
-     * Create the rewards if they do not exist.
-     * <br></br>
-     * <b>WARNING:</b> If the reward already exists, but it was not created by the client, the execution will fail.
-     * Remove the existing reward in order to ensure the perfect workflow.
+     * Subscribe to the redemptions of the broadcaster with the configured transport.
+     * EventSub requires the user token, since its WebSocket subscriptions are bound to the authorizing user.
+     *
+     * @param broadcasterId The id of the broadcaster.
      */
-    private void createRewards() {
-        Config config = this.request.getConfig();
-
-        CustomRewardList rewardList = this.client.getHelix().getCustomRewards(this.userCredentials.getAccessToken(), this.broadcasterId,
-                null, true).execute();
-
-        String addSong = config.getTwitchRedemptionAddSong();
-
-        if (!Objects.equals(addSong, "") && rewardList.getRewards().stream().noneMatch(reward -> reward.getTitle().equals(addSong))) {
-            this.client.getHelix().createCustomReward(this.userCredentials.getAccessToken(), this.broadcasterId,
-                    new CustomReward().withCost(1).withIsEnabled(false)
-                            .withIsUserInputRequired(true)
-                            .withTitle(addSong)
-                            .withBroadcasterId(this.broadcasterId)).execute();
+    private void listenForRedemptions(@NotNull String broadcasterId) {
+        if (this.transport == RedemptionTransport.PUBSUB) {
+            this.client.getPubSub().listenForChannelPointsRedemptionEvents(this.clientCredentials, broadcasterId);
+            return;
         }
 
-        String skipSong = config.getTwitchRedemptionSkipSong();
+        boolean registered = this.client.getEventSocket().register(this.userCredentials,
+                SubscriptionTypes.CHANNEL_POINTS_CUSTOM_REWARD_REDEMPTION_ADD.prepareSubscription(
+                        condition -> condition.broadcasterUserId(broadcasterId).build(), null));
 
-        if (!Objects.equals(skipSong, "") && rewardList.getRewards().stream().noneMatch(reward -> reward.getTitle().equals(skipSong))) {
-            this.client.getHelix().createCustomReward(this.userCredentials.getAccessToken(), this.broadcasterId,
-                    new CustomReward().withCost(1).withIsEnabled(false)
-                            .withTitle(skipSong)
-                            .withBroadcasterId(this.broadcasterId)).execute();
+        if (!registered) {
+            LOGGER.warn("Subscribing to the redemptions of {} was already requested", broadcasterId);
         }
+    }
 
-        String playLastSong = config.getTwitchRedemptionPlayLastSong();
+    /**
+     * Create the rewards if they do not exist and route their redemptions to the handlers.
+     * Missing rewards are created in parallel.
+     * <br></br>
+     * <b>WARNING:</b> If the reward already exists, but it was not created by the client, the execution will fail.
+     * Remove the existing reward in order to ensure the perfect workflow.
+     *
+     * @return A completable future which completes when the redemptions are routed.
+     */
+    private CompletableFuture<Void> createRewards() {
+        ConfigSnapshot.RedemptionConfig config = this.request.getConfig().getSnapshot().twitch().redemption();
+        String token = this.userCredentials.getAccessToken();
+        Executor executor = this.request.getExecutor();
 
-        if (!Objects.equals(playLastSong, "") && rewardList.getRewards().stream().noneMatch(reward -> reward.getTitle().equals(playLastSong))) {
-            this.client.getHelix().createCustomReward(this.userCredentials.getAccessToken(), this.broadcasterId,
-                    new CustomReward().withCost(1).withIsEnabled(false)
-                            .withTitle(playLastSong)
-                            .withBroadcasterId(this.broadcasterId)).execute();
-        }
+        return CompletableFuture.supplyAsync(() -> this.client.getHelix().getCustomRewards(token, this.broadcasterId,
+                null, true).execute().getRewards(), executor).thenCompose(existing -> {
+            Map<String, RewardType> rewards = new ConcurrentHashMap<>();
+            List<CompletableFuture<Void>> creations = new ArrayList<>();
 
-        String skipTenSeconds = config.getTwitchRedemptionSkipTenSeconds();
+            for (RewardType type : RewardType.values()) {
+                String title = type.getTitle(config);
 
-        if (!Objects.equals(skipTenSeconds, "") && rewardList.getRewards().stream().noneMatch(reward -> reward.getTitle().equals(skipTenSeconds))) {
-            this.client.getHelix().createCustomReward(this.userCredentials.getAccessToken(), this.broadcasterId,
-                    new CustomReward().withCost(1).withIsEnabled(false)
-                            .withTitle(skipTenSeconds)
-                            .withBroadcasterId(this.broadcasterId)).execute();
-        }
+                if (title.isEmpty()) {
+                    continue;
+                }
 
-        String playLastTenSeconds = config.getTwitchRedemptionPlayLastTenSeconds();
+                Optional<CustomReward> reward = existing.stream()
+                        .filter(customReward -> customReward.getTitle().equals(title))
+                        .findFirst();
 
-        if (!Objects.equals(playLastTenSeconds, "") && rewardList.getRewards().stream().noneMatch(reward -> reward.getTitle().equals(playLastTenSeconds))) {
-            this.client.getHelix().createCustomReward(this.userCredentials.getAccessToken(), this.broadcasterId,
-                    new CustomReward().withCost(1).withIsEnabled(false)
-                            .withTitle(playLastTenSeconds)
-                            .withBroadcasterId(this.broadcasterId)).execute();
-        }
+                if (reward.isPresent()) {
+                    rewards.put(reward.get().getId(), type);
+                    continue;
+                }
 
-        String startPlayback = config.getTwitchRedemptionStartPlayback();
+                creations.add(CompletableFuture.supplyAsync(() -> this.createReward(token, type, title), executor)
+                        .handle((created, throwable) -> {
+                            if (throwable != null) {
+                                LOGGER.error("Creating the reward '{}' failed", title, throwable);
+                                return null;
+                            }
 
-        if (!Objects.equals(startPlayback, "") && rewardList.getRewards().stream().noneMatch(reward -> reward.getTitle().equals(startPlayback))) {
-            this.client.getHelix().createCustomReward(this.userCredentials.getAccessToken(), this.broadcasterId,
-                    new CustomReward().withCost(1).withIsEnabled(false)
-                            .withTitle(startPlayback)
-                            .withBroadcasterId(this.broadcasterId)).execute();
-        }
+                            rewards.put(created.getId(), type);
+                            return null;
+                        }));
+            }
 
-        String pausePlayback = config.getTwitchRedemptionPausePlayback();
+            return CompletableFuture.allOf(creations.toArray(CompletableFuture[]::new)).thenRun(() -> {
+                this.rewards.setRoutes(rewards);
+                LOGGER.info("Routing {} rewards", rewards.size());
+            });
+        });
+    }
 
-        if (!Objects.equals(pausePlayback, "") && rewardList.getRewards().stream().noneMatch(reward -> reward.getTitle().equals(pausePlayback))) {
-            this.client.getHelix().createCustomReward(this.userCredentials.getAccessToken(), this.broadcasterId,
-                    new CustomReward().withCost(1).withIsEnabled(false)
-                            .withTitle(pausePlayback)
-                            .withBroadcasterId(this.broadcasterId)).execute();
-        }
+    /**
+     * Create a reward.
+     *
+     * @param token The access token of the broadcaster.
+     * @param type  The type of the reward.
+     * @param title The title of the reward.
+     * @return The created reward.
+     */
+    private CustomReward createReward(@NotNull String token, @NotNull RewardType type, @NotNull String title) {
+        return this.client.getHelix().createCustomReward(token, this.broadcasterId,
+                new CustomReward().withCost(1).withIsEnabled(false)
+                        .withIsUserInputRequired(type.isUserInputRequired())
+                        .withTitle(title)
+                        .withBroadcasterId(this.broadcasterId)).execute().getRewards().get(0);
     }
 
     /**
      * Validates the credentials for the user's account.
-     * May be regenerated when the access token expires in less than 5 seconds or is already expired.
+     * Uses the access token from the config while it is valid for more than 5 seconds; otherwise it is regenerated.
      *
-     * @return
+     * @return A completable future which contains a true boolean when the execution was successful.
      */
     private CompletableFuture<Boolean> validateCredentials() {
-        if ((this.request.getConfig().getTwitchExpiresAt() - 5000) > System.currentTimeMillis()) {
+        Config config = this.request.getConfig();
+
+        if ((config.getTwitchExpiresAt() - 5000) > System.currentTimeMillis()) {
+            this.updateUserCredentials(config.getTwitchAccessToken());
             return CompletableFuture.completedFuture(true);
         }
 
+        return this.renewCredentials();
+    }
+
+    /**
+     * Regenerate the credentials for the user's account regardless of their expiration.
+     *
+     * @return A completable future which contains a true boolean when the execution was successful.
+     */
+    public CompletableFuture<Boolean> renewCredentials() {
         CompletableFuture<Boolean> future = new CompletableFuture<>();
 
         this.api.regenerateAuthorizationCode().whenCompleteAsync((o, throwable) -> {
@@ -304,33 +487,116 @@ public class Twitch {
                 return;
             }
 
-            String[] token = ((String) o).split(" ");
-            this.userCredentials.updateCredential(new OAuth2Credential(token[0], token[1]));
+            this.updateUserCredentials((String) o);
             future.complete(true);
-        });
+        }, this.request.getExecutor());
 
         return future;
     }
 
+    /**
+     * Publish a new access token to the credentials shared with the twitch client.
+     *
+     * @param token The access token including the "Bearer" prefix.
+     */
+    private void updateUserCredentials(@NotNull String token) {
+        String[] split = token.split(" ");
+        this.userCredentials.updateCredential(new OAuth2Credential(split[0], split[1]));
+    }
+
     /**
      * Change the redemption status.
+     * The update is batched with other updates of the same reward and status and sent asynchronously;
+     * a failure is logged.
+     *
+     * @param redemption The reward redemption
+     * @param status     The new status
+     */
+    private void changeRedemptionStatus(@NotNull Redemption redemption, @NotNull RedemptionStatus status) {
+        this.changeRedemptionStatus(redemption.rewardId(), redemption.id(), status).exceptionally(throwable -> {
+            LOGGER.error("Changing the status of redemption {} to {} failed", redemption.id(), status, throwable);
+            return null;
+        });
+    }
+
+    /**
+     * Change the status of a redemption and journal it once it was sent.
+     *
+     * @param rewardId     The id of the reward.
+     * @param redemptionId The id of the redemption.
+     * @param status       The new status.
+     * @return A completable future which completes once the status was changed.
+     */
+    private CompletableFuture<Void> changeRedemptionStatus(@NotNull String rewardId, @NotNull String redemptionId,
+                                                           @NotNull RedemptionStatus status) {
+        return this.statuses.update(rewardId, redemptionId, status).thenRun(() ->
+                this.journal.append(RedemptionJournal.Event.STATUS_SENT, redemptionId, rewardId, status.name()));
+    }
+
+    /**
+     * Open the journal and read the redemptions interrupted by the previous run.
+     *
+     * @return The latest event of each interrupted redemption; empty when the journal could not be opened.
+     */
+    private List<RedemptionJournal.Entry> openJournal() {
+        try {
+            return this.journal.open();
+        } catch (IOException e) {
+            LOGGER.error("Opening the redemption journal failed; interrupted redemptions are not recovered", e);
+            return List.of();
+        }
+    }
+
+    /**
+     * Finish the redemptions interrupted by the previous run.
+     * Redemptions whose handler completed are fulfilled, all others are canceled, which refunds them.
+     *
+     * @param entries The latest event of each interrupted redemption.
+     */
+    private void replayJournal(@NotNull List<RedemptionJournal.Entry> entries) {
+        for (RedemptionJournal.Entry entry : entries) {
+            RedemptionStatus status = entry.event() == RedemptionJournal.Event.QUEUED
+                    ? RedemptionStatus.FULFILLED : RedemptionStatus.CANCELED;
+
+            LOGGER.info("Changing the status of redemption {} interrupted after {} to {}", entry.redemptionId(),
+                    entry.event(), status);
+
+            this.changeRedemptionStatus(entry.rewardId(), entry.redemptionId(), status).exceptionally(throwable -> {
+                // most likely changed by hand in the meantime; do not try again on every start
+                LOGGER.error("Changing the status of redemption {} to {} failed", entry.redemptionId(), status,
+                        throwable);
+                this.journal.append(RedemptionJournal.Event.STATUS_SENT, entry.redemptionId(), entry.rewardId(),
+                        "FAILED");
+                return null;
+            });
+        }
+    }
+
+    /**
+     * Update the status of redemptions of a reward in a single call.
      *
-     * @param event  The event of the reward redemption
-     * @param status The new status
+     * @param rewardId The id of the reward.
+     * @param ids      The ids of the redemptions.
+     * @param status   The new status.
+     * @return The ids of the updated redemptions.
      */
-    private void changeRedemptionStatus(@NotNull RewardRedeemedEvent event, @NotNull RedemptionStatus status) {
-        this.client.getHelix().updateRedemptionStatus(this.userCredentials.getAccessToken(), this.broadcasterId,
-                event.getRedemption().getReward().getId(), Collections.singletonList(event.getRedemption().getId()),
-                status).queue();
+    private List<String> updateRedemptionStatus(@NotNull String rewardId, @NotNull List<String> ids,
+                                                @NotNull RedemptionStatus status) {
+        return this.client.getHelix().updateRedemptionStatus(this.userCredentials.getAccessToken(), this.broadcasterId,
+                        rewardId, ids, status).execute().getRedemptions().stream()
+                .map(CustomRewardRedemption::getRedemptionId)
+                .toList();
     }
 
-    private void action(RewardRedeemedEvent event, Throwable throwable) {
+    private void action(Redemption redemption, Throwable throwable) {
         if (throwable != null) {
-            throwable.printStackTrace();
-            this.changeRedemptionStatus(event, RedemptionStatus.CANCELED);
+            LOGGER.error("Handling redemption {} of {} failed, canceling it", redemption.id(), redemption.userLogin(),
+                    throwable);
+            this.changeRedemptionStatus(redemption, RedemptionStatus.CANCELED);
             return;
         }
 
-        this.changeRedemptionStatus(event, RedemptionStatus.FULFILLED);
+        this.journal.append(RedemptionJournal.Event.QUEUED, redemption.id(), redemption.rewardId(), "");
+        this.changeRedemptionStatus(redemption, RedemptionStatus.FULFILLED);
     }
 }
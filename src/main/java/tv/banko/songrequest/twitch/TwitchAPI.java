@@ -5,7 +5,11 @@ import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
 import okhttp3.*;
 import org.jetbrains.annotations.NotNull;
+import tv.banko.songrequest.SongRequest;
 import tv.banko.songrequest.config.Config;
+import tv.banko.songrequest.util.CircuitBreaker;
+import tv.banko.songrequest.util.HTTPClientFactory;
+import tv.banko.songrequest.util.HTTPMethod;
 
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
@@ -20,7 +24,7 @@ public class TwitchAPI {
 
     public TwitchAPI(@NotNull Twitch twitch) {
         this.twitch = twitch;
-        this.client = new OkHttpClient();
+        this.client = twitch.getRequest().getHttpClient();
     }
 
     /**
@@ -43,36 +47,35 @@ public class TwitchAPI {
                 .header("Authorization", "Basic " + basicAuth)
                 .post(RequestBody.create(new byte[0]));
 
-        this.client.newCall(builder.build()).enqueue(new Callback() {
-            @Override
-            public void onFailure(@NotNull Call call, @NotNull IOException e) {
-                future.completeExceptionally(e);
+        // the refresh token may be rotated by the exchange, so it is not retried; the credential manager backs off
+        this.send(url, builder.build(), false).whenComplete((response, throwable) -> {
+            if (throwable != null) {
+                future.completeExceptionally(throwable);
+                return;
+            }
+
+            if (response.code() != 200) {
+                response.close();
+                future.completeExceptionally(new RuntimeException("Error code " + response.code()));
+                return;
+            }
+
+            if (response.body() == null) {
+                future.completeExceptionally(new NullPointerException("Response is null"));
+                return;
             }
 
-            @Override
-            public void onResponse(@NotNull Call call, @NotNull Response response) {
-                if (response.code() != 200) {
-                    future.completeExceptionally(new RuntimeException("Error code " + response.code()));
-                    return;
-                }
-
-                if (response.body() == null) {
-                    future.completeExceptionally(new NullPointerException("Response is null"));
-                    return;
-                }
-
-                try {
-                    JsonObject object = JsonParser.parseString(response.body().string()).getAsJsonObject();
-
-                    config.setValue("twitch.token", "Bearer " + object.get("access_token").getAsString());
-                    config.setValue("twitch.refreshToken", object.get("refresh_token").getAsString());
-                    config.setValue("twitch.expiresAt", System.currentTimeMillis()
-                            + (object.get("expires_in").getAsInt() * 1000L));
-
-                    future.complete(config.getTwitchAccessToken());
-                } catch (IOException e) {
-                    future.completeExceptionally(e);
-                }
+            try {
+                JsonObject object = JsonParser.parseString(response.body().string()).getAsJsonObject();
+
+                config.setValue("twitch.token", "Bearer " + object.get("access_token").getAsString());
+                config.setValue("twitch.refreshToken", object.get("refresh_token").getAsString());
+                config.setValue("twitch.expiresAt", System.currentTimeMillis()
+                        + (object.get("expires_in").getAsInt() * 1000L));
+
+                future.complete(config.getTwitchAccessToken());
+            } catch (IOException e) {
+                future.completeExceptionally(e);
             }
         });
 
@@ -99,35 +102,49 @@ public class TwitchAPI {
                 .header("Authorization", "Basic " + basicAuth)
                 .post(RequestBody.create(new byte[0]));
 
-        this.client.newCall(builder.build()).enqueue(new Callback() {
-            @Override
-            public void onFailure(@NotNull Call call, @NotNull IOException e) {
-                future.completeExceptionally(e);
+        // requesting client credentials has no side effects, so it is retried like an idempotent call
+        this.send(url, builder.build(), true).whenComplete((response, throwable) -> {
+            if (throwable != null) {
+                future.completeExceptionally(throwable);
+                return;
             }
 
-            @Override
-            public void onResponse(@NotNull Call call, @NotNull Response response) {
-                if (response.code() != 200) {
-                    future.completeExceptionally(new RuntimeException("Error code " + response.code()));
-                    return;
-                }
-
-                if (response.body() == null) {
-                    future.completeExceptionally(new NullPointerException("Response is null"));
-                    return;
-                }
-
-                try {
-                    JsonObject object = JsonParser.parseString(response.body().string()).getAsJsonObject();
-                    future.complete(new OAuth2Credential("Bearer", object.get("access_token").getAsString()));
-                } catch (IOException e) {
-                    future.completeExceptionally(e);
-                }
+            if (response.code() != 200) {
+                response.close();
+                future.completeExceptionally(new RuntimeException("Error code " + response.code()));
+                return;
+            }
+
+            if (response.body() == null) {
+                future.completeExceptionally(new NullPointerException("Response is null"));
+                return;
+            }
+
+            try {
+                JsonObject object = JsonParser.parseString(response.body().string()).getAsJsonObject();
+                future.complete(new OAuth2Credential("Bearer", object.get("access_token").getAsString()));
+            } catch (IOException e) {
+                future.completeExceptionally(e);
             }
         });
 
         return future;
     }
 
+    /**
+     * Send a request through the circuit breaker of its endpoint, retrying it on failures when it is retryable.
+     *
+     * @param url       The url of the request.
+     * @param request   The request.
+     * @param retryable Whether the request may be sent again after a failure.
+     * @return A completable future which contains the response when the execution was successful.
+     */
+    private CompletableFuture<Response> send(@NotNull String url, @NotNull Request request, boolean retryable) {
+        SongRequest songRequest = this.twitch.getRequest();
+        CircuitBreaker breaker = songRequest.getCircuitBreakers().get(HTTPMethod.POST, url);
+
+        return songRequest.getRetryPolicy().execute(retryable, () -> breaker.execute(() ->
+                HTTPClientFactory.enqueue(this.client, request).thenCompose(HTTPClientFactory::failOnServerError)));
+    }
 
 }
@@ -0,0 +1,55 @@
+package tv.banko.songrequest.twitch.reward;
+
+import com.github.twitch4j.eventsub.events.CustomRewardRedemptionAddEvent;
+import com.github.twitch4j.pubsub.domain.ChannelPointsRedemption;
+import com.github.twitch4j.pubsub.events.RewardRedeemedEvent;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.time.Instant;
+
+/**
+ * A channel point redemption, independent of the transport it was received with.
+ *
+ * @param id              The id of the redemption.
+ * @param rewardId        The id of the redeemed reward.
+ * @param rewardTitle     The title of the redeemed reward.
+ * @param userId          The id of the redeeming user.
+ * @param userLogin       The login of the redeeming user.
+ * @param userDisplayName The display name of the redeeming user.
+ * @param userInput       The text entered by the user, or null when the reward does not require any.
+ * @param redeemedAt      The time of the redemption.
+ */
+public record Redemption(@NotNull String id, @NotNull String rewardId, @NotNull String rewardTitle,
+                         @NotNull String userId, @NotNull String userLogin, @NotNull String userDisplayName,
+                         @Nullable String userInput, @NotNull Instant redeemedAt) {
+
+    /**
+     * Create a redemption from a PubSub event.
+     *
+     * @param event The reward redeemed event.
+     * @return The redemption.
+     */
+    public static Redemption fromPubSub(@NotNull RewardRedeemedEvent event) {
+        ChannelPointsRedemption redemption = event.getRedemption();
+        Instant timestamp = event.getTime();
+
+        return new Redemption(redemption.getId(), redemption.getReward().getId(), redemption.getReward().getTitle(),
+                redemption.getUser().getId(), redemption.getUser().getLogin(), redemption.getUser().getDisplayName(),
+                redemption.getUserInput(), timestamp != null ? timestamp : Instant.now());
+    }
+
+    /**
+     * Create a redemption from an EventSub event.
+     *
+     * @param event The custom reward redemption add event.
+     * @return The redemption.
+     */
+    public static Redemption fromEventSub(@NotNull CustomRewardRedemptionAddEvent event) {
+        Instant redeemedAt = event.getRedeemedAt();
+
+        return new Redemption(event.getId(), event.getReward().getId(), event.getReward().getTitle(),
+                event.getUserId(), event.getUserLogin(), event.getUserName(), event.getUserInput(),
+                redeemedAt != null ? redeemedAt : Instant.now());
+    }
+}
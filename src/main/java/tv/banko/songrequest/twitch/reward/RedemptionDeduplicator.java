@@ -0,0 +1,142 @@
+package tv.banko.songrequest.twitch.reward;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Remembers the ids of recently received redemptions, so a redemption delivered again after a reconnect
+ * is dropped before it is handled a second time.
+ * Ids are forgotten after a fixed time, or earlier when the maximum amount of ids is exceeded;
+ * the oldest ids are forgotten first.
+ */
+public class RedemptionDeduplicator {
+
+    public static final long DEFAULT_TTL_MILLIS = TimeUnit.MINUTES.toMillis(10);
+    public static final int DEFAULT_MAX_SIZE = 10000;
+
+    private final long ttlNanos;
+    private final int maxSize;
+    private final LongSupplier clock;
+
+    private final Map<String, Long> seen;
+    private final Queue<Entry> order;
+    private final AtomicInteger size;
+
+    private final LongAdder received;
+    private final LongAdder duplicates;
+
+    public RedemptionDeduplicator() {
+        this(DEFAULT_TTL_MILLIS, DEFAULT_MAX_SIZE);
+    }
+
+    /**
+     * @param ttlMillis The time an id is remembered.
+     * @param maxSize   The maximum amount of remembered ids.
+     */
+    public RedemptionDeduplicator(long ttlMillis, int maxSize) {
+        this(ttlMillis, maxSize, System::nanoTime);
+    }
+
+    /**
+     * @param ttlMillis The time an id is remembered.
+     * @param maxSize   The maximum amount of remembered ids.
+     * @param clock     The clock returning the current time in nanoseconds.
+     */
+    public RedemptionDeduplicator(long ttlMillis, int maxSize, @NotNull LongSupplier clock) {
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+        this.maxSize = maxSize;
+        this.clock = clock;
+        this.seen = new ConcurrentHashMap<>();
+        this.order = new ConcurrentLinkedQueue<>();
+        this.size = new AtomicInteger();
+        this.received = new LongAdder();
+        this.duplicates = new LongAdder();
+    }
+
+    /**
+     * Check whether a redemption is received for the first time and remember it.
+     *
+     * @param id The id of the redemption.
+     * @return True when the redemption was not received within the remembered time, false when it is a duplicate.
+     */
+    public boolean firstDelivery(@NotNull String id) {
+        long now = this.clock.getAsLong();
+        this.received.increment();
+        this.expire(now);
+
+        if (this.seen.putIfAbsent(id, now) != null) {
+            this.duplicates.increment();
+            return false;
+        }
+
+        this.order.offer(new Entry(id, now));
+        this.size.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * Get the amount of remembered ids.
+     *
+     * @return The amount of ids.
+     */
+    public int getSize() {
+        return this.size.get();
+    }
+
+    /**
+     * Get the amount of received redemptions, including the duplicates.
+     *
+     * @return The amount of redemptions.
+     */
+    public long getReceived() {
+        return this.received.sum();
+    }
+
+    /**
+     * Get the amount of dropped duplicates.
+     *
+     * @return The amount of duplicates.
+     */
+    public long getDuplicates() {
+        return this.duplicates.sum();
+    }
+
+    /**
+     * Get the share of received redemptions which were duplicates.
+     *
+     * @return The share between 0 and 1.
+     */
+    public double getDuplicateRate() {
+        long received = this.received.sum();
+        return received == 0 ? 0 : (double) this.duplicates.sum() / received;
+    }
+
+    /**
+     * Forget the ids which expired or exceed the maximum size.
+     * The ids are ordered by the time they were received, so they are taken from the head until one is kept;
+     * the lock keeps another thread from taking a different head between the check and the removal.
+     *
+     * @param now The current time in nanoseconds.
+     */
+    private synchronized void expire(long now) {
+        Entry entry;
+
+        while ((entry = this.order.peek()) != null
+                && (now - entry.receivedAt() > this.ttlNanos || this.size.get() >= this.maxSize)) {
+            this.order.poll();
+            this.seen.remove(entry.id(), entry.receivedAt());
+            this.size.decrementAndGet();
+        }
+    }
+
+    private record Entry(String id, long receivedAt) {
+    }
+}
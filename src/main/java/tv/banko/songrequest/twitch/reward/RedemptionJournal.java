@@ -0,0 +1,476 @@
+package tv.banko.songrequest.twitch.reward;
+
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * An append-only journal of the lifecycle of redemptions, so redemptions interrupted by a crash or a redeploy
+ * can be finished or refunded on the next start.
+ * <p>
+ * Events are handed to a writer thread through a non-blocking queue and never wait for the disk. The writer appends
+ * everything queued in the meantime to a preallocated, memory-mapped segment and forces it to disk once per batch.
+ * When a segment is full, the redemptions still in flight are carried over into a new segment and the old segments
+ * are deleted, so the journal only ever holds the redemptions which were not finished yet.
+ * <p>
+ * Every record is prefixed with its length and checksum; reading stops at the first empty or torn record.
+ * <p>
+ * When the journal cannot be opened or a batch cannot be written, the journal is disabled and drops further events,
+ * so a broken disk does not stop the redemptions.
+ */
+public class RedemptionJournal {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RedemptionJournal.class);
+
+    private static final int SEGMENT_SIZE = 1 << 20;
+    private static final int HEADER_SIZE = 2 * Integer.BYTES;
+    private static final int MAX_BATCH = 256;
+    private static final int MAX_PENDING = 10000;
+    private static final long IDLE_PARK_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".journal";
+
+    private final Path directory;
+    private final Queue<Entry> pending;
+    private final AtomicInteger pendingSize;
+
+    // only accessed by the writer thread once the journal is open
+    private final Map<String, Entry> inFlight;
+    private FileChannel channel;
+    private MappedByteBuffer buffer;
+    private long sequence;
+
+    private volatile Thread writer;
+    private volatile boolean running;
+    private volatile boolean failed;
+
+    private final AtomicLong dropped;
+
+    private volatile long appended;
+    private volatile long commits;
+    private volatile long totalCommitNanos;
+    private volatile long maxCommitNanos;
+
+    /**
+     * @param directory The directory of the segment files.
+     */
+    public RedemptionJournal(@NotNull Path directory) {
+        this.directory = directory.toAbsolutePath();
+        this.pending = new ConcurrentLinkedQueue<>();
+        this.pendingSize = new AtomicInteger();
+        this.dropped = new AtomicLong();
+        this.inFlight = new LinkedHashMap<>();
+    }
+
+    /**
+     * Read the redemptions left unfinished by the previous run and start writing.
+     * Events appended before are kept, up to a maximum amount, and written once the journal is open.
+     *
+     * @return The latest event of each redemption whose status was not sent yet.
+     * @throws IOException When the journal cannot be read or written; the journal is disabled then.
+     */
+    public List<Entry> open() throws IOException {
+        try {
+            Files.createDirectories(this.directory);
+            List<Path> segments = this.listSegments();
+
+            for (Path segment : segments) {
+                this.read(segment);
+            }
+
+            if (!segments.isEmpty()) {
+                this.sequence = getSequence(segments.get(segments.size() - 1));
+            }
+
+            List<Entry> unfinished = new ArrayList<>(this.inFlight.values());
+            this.roll();
+
+            this.running = true;
+            this.writer = new Thread(this::run, "songrequest-journal");
+            this.writer.setDaemon(true);
+            this.writer.start();
+
+            return unfinished;
+        } catch (IOException e) {
+            this.failed = true;
+            this.pending.clear();
+            this.pendingSize.set(0);
+            throw e;
+        }
+    }
+
+    /**
+     * Append an event of a redemption without waiting for it to be written.
+     * The event is dropped while the journal is disabled or too many events wait to be written.
+     *
+     * @param event        The event.
+     * @param redemptionId The id of the redemption.
+     * @param rewardId     The id of the redeemed reward.
+     * @param detail       Additional information, e.g. the resolved track or the sent status.
+     */
+    public void append(@NotNull Event event, @NotNull String redemptionId, @NotNull String rewardId,
+                       @NotNull String detail) {
+        if (this.failed) {
+            return;
+        }
+
+        if (this.pendingSize.get() >= MAX_PENDING) {
+            if (this.dropped.getAndIncrement() == 0) {
+                LOGGER.warn("{} journal events wait to be written; dropping further events", MAX_PENDING);
+            }
+            return;
+        }
+
+        this.pending.offer(new Entry(event, redemptionId, rewardId, detail, System.currentTimeMillis()));
+        this.pendingSize.incrementAndGet();
+
+        Thread writer = this.writer;
+
+        if (writer != null) {
+            LockSupport.unpark(writer);
+        }
+    }
+
+    /**
+     * Write the pending events and stop the writer.
+     *
+     * @param timeoutMillis The maximum time to wait for the writer in milliseconds.
+     */
+    public void close(long timeoutMillis) {
+        Thread writer = this.writer;
+
+        if (writer == null) {
+            return;
+        }
+
+        this.running = false;
+        LockSupport.unpark(writer);
+
+        try {
+            writer.join(timeoutMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Get the amount of events waiting to be written.
+     *
+     * @return The amount of events.
+     */
+    public int getPending() {
+        return this.pendingSize.get();
+    }
+
+    /**
+     * Get the amount of events dropped because too many events waited to be written.
+     *
+     * @return The amount of events.
+     */
+    public long getDropped() {
+        return this.dropped.get();
+    }
+
+    /**
+     * Check whether the journal was disabled because it could not be opened or written.
+     *
+     * @return True when the journal is disabled.
+     */
+    public boolean isFailed() {
+        return this.failed;
+    }
+
+    /**
+     * Get the amount of written events.
+     *
+     * @return The amount of events.
+     */
+    public long getAppended() {
+        return this.appended;
+    }
+
+    /**
+     * Get the amount of batches forced to disk.
+     *
+     * @return The amount of batches.
+     */
+    public long getCommits() {
+        return this.commits;
+    }
+
+    /**
+     * Get the average duration of writing and forcing a batch.
+     *
+     * @return The duration in nanoseconds.
+     */
+    public long getAverageCommitNanos() {
+        long commits = this.commits;
+        return commits == 0 ? 0 : this.totalCommitNanos / commits;
+    }
+
+    /**
+     * Get the duration of the slowest batch.
+     *
+     * @return The duration in nanoseconds.
+     */
+    public long getMaxCommitNanos() {
+        return this.maxCommitNanos;
+    }
+
+    private void run() {
+        while (this.running || !this.pending.isEmpty()) {
+            Entry entry = this.pending.poll();
+
+            if (entry == null) {
+                LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+                continue;
+            }
+
+            long start = System.nanoTime();
+            int batch = 0;
+
+            try {
+                do {
+                    this.pendingSize.decrementAndGet();
+                    this.write(entry);
+                    batch++;
+                } while (batch < MAX_BATCH && (entry = this.pending.poll()) != null);
+
+                this.buffer.force();
+            } catch (IOException | RuntimeException e) {
+                // the segment may hold a torn record now; the redemptions are still handled, just not journaled
+                LOGGER.error("Writing {} journal events failed; the journal is disabled", batch, e);
+                this.failed = true;
+                this.pending.clear();
+                this.pendingSize.set(0);
+                break;
+            }
+
+            long duration = System.nanoTime() - start;
+            this.appended += batch;
+            this.commits++;
+            this.totalCommitNanos += duration;
+            this.maxCommitNanos = Math.max(this.maxCommitNanos, duration);
+        }
+
+        try {
+            this.channel.close();
+        } catch (IOException e) {
+            LOGGER.error("Closing the journal failed", e);
+        }
+    }
+
+    /**
+     * Write an event into the current segment, rolling over to a new segment when it is full.
+     *
+     * @param entry The event.
+     */
+    private void write(@NotNull Entry entry) throws IOException {
+        this.apply(entry);
+        byte[] payload = entry.encode();
+
+        if (this.buffer.remaining() < HEADER_SIZE + payload.length) {
+            // the new segment starts with the in-flight redemptions, which already include this event
+            this.roll();
+            return;
+        }
+
+        this.put(payload);
+    }
+
+    /**
+     * Start a new segment with the redemptions in flight and delete the previous segments.
+     */
+    private void roll() throws IOException {
+        if (this.channel != null) {
+            this.buffer.force();
+            this.channel.close();
+        }
+
+        List<Path> previous = this.listSegments();
+        Path segment = this.directory.resolve(String.format("%s%012d%s", SEGMENT_PREFIX, ++this.sequence,
+                SEGMENT_SUFFIX));
+
+        this.channel = FileChannel.open(segment, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        // mapping beyond the end of the file extends it, so the whole segment is allocated up front
+        this.buffer = this.channel.map(FileChannel.MapMode.READ_WRITE, 0, SEGMENT_SIZE);
+
+        for (Entry entry : this.inFlight.values()) {
+            byte[] payload = entry.encode();
+
+            if (this.buffer.remaining() < HEADER_SIZE + payload.length) {
+                LOGGER.error("Journal segment too small for {} redemptions in flight", this.inFlight.size());
+                break;
+            }
+
+            this.put(payload);
+        }
+
+        this.buffer.force();
+
+        for (Path path : previous) {
+            try {
+                Files.deleteIfExists(path);
+            } catch (IOException e) {
+                LOGGER.warn("Deleting journal segment {} failed", path, e);
+            }
+        }
+    }
+
+    private void put(byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+
+        this.buffer.putInt(payload.length);
+        this.buffer.putInt((int) crc.getValue());
+        this.buffer.put(payload);
+    }
+
+    /**
+     * Read the events of a segment into the redemptions in flight.
+     *
+     * @param segment The segment file.
+     */
+    private void read(@NotNull Path segment) throws IOException {
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ)) {
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+            while (buffer.remaining() >= HEADER_SIZE) {
+                int length = buffer.getInt();
+                int checksum = buffer.getInt();
+
+                if (length <= 0 || length > buffer.remaining()) {
+                    break;
+                }
+
+                byte[] payload = new byte[length];
+                buffer.get(payload);
+
+                CRC32 crc = new CRC32();
+                crc.update(payload);
+
+                if ((int) crc.getValue() != checksum) {
+                    LOGGER.warn("Journal segment {} ends with a torn record", segment.getFileName());
+                    break;
+                }
+
+                this.apply(Entry.decode(payload));
+            }
+        }
+    }
+
+    private void apply(@NotNull Entry entry) {
+        if (entry.event() == Event.STATUS_SENT) {
+            this.inFlight.remove(entry.redemptionId());
+            return;
+        }
+
+        this.inFlight.put(entry.redemptionId(), entry);
+    }
+
+    private List<Path> listSegments() throws IOException {
+        try (Stream<Path> stream = Files.list(this.directory)) {
+            return stream.filter(path -> {
+                        String name = path.getFileName().toString();
+                        return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+                    })
+                    .sorted(Comparator.comparingLong(RedemptionJournal::getSequence))
+                    .toList();
+        }
+    }
+
+    private static long getSequence(@NotNull Path segment) {
+        String name = segment.getFileName().toString();
+
+        try {
+            return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * The events in the lifecycle of a redemption.
+     */
+    public enum Event {
+
+        /**
+         * The redemption was received and admitted to its handler.
+         */
+        RECEIVED,
+
+        /**
+         * The requested track was found; the detail is its uri.
+         */
+        TRACK_RESOLVED,
+
+        /**
+         * The handler completed, e.g. the song was added to the queue; the redemption is to be fulfilled.
+         */
+        QUEUED,
+
+        /**
+         * The status of the redemption was sent to Twitch; the detail is the status.
+         */
+        STATUS_SENT
+    }
+
+    /**
+     * An event of a redemption.
+     *
+     * @param event        The event.
+     * @param redemptionId The id of the redemption.
+     * @param rewardId     The id of the redeemed reward.
+     * @param detail       Additional information, or an empty string.
+     * @param timestamp    The time the event was appended in milliseconds since the epoch.
+     */
+    public record Entry(@NotNull Event event, @NotNull String redemptionId, @NotNull String rewardId,
+                        @NotNull String detail, long timestamp) {
+
+        private byte[] encode() {
+            byte[] redemptionId = this.redemptionId.getBytes(StandardCharsets.UTF_8);
+            byte[] rewardId = this.rewardId.getBytes(StandardCharsets.UTF_8);
+            byte[] detail = this.detail.getBytes(StandardCharsets.UTF_8);
+
+            ByteBuffer buffer = ByteBuffer.allocate(1 + Long.BYTES + 3 * Integer.BYTES
+                    + redemptionId.length + rewardId.length + detail.length);
+            buffer.put((byte) this.event.ordinal());
+            buffer.putLong(this.timestamp);
+            buffer.putInt(redemptionId.length).put(redemptionId);
+            buffer.putInt(rewardId.length).put(rewardId);
+            buffer.putInt(detail.length).put(detail);
+            return buffer.array();
+        }
+
+        private static Entry decode(byte[] payload) {
+            ByteBuffer buffer = ByteBuffer.wrap(payload);
+            Event event = Event.values()[buffer.get()];
+            long timestamp = buffer.getLong();
+            return new Entry(event, readString(buffer), readString(buffer), readString(buffer), timestamp);
+        }
+
+        private static String readString(@NotNull ByteBuffer buffer) {
+            byte[] bytes = new byte[buffer.getInt()];
+            buffer.get(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+}
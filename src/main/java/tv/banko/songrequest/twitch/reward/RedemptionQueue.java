@@ -0,0 +1,260 @@
+package tv.banko.songrequest.twitch.reward;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import tv.banko.songrequest.config.ConfigSnapshot;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Admits the redemptions of a channel to their handlers.
+ * At most a fixed amount of redemptions is handled at the same time; the others wait in a bounded queue and are taken
+ * round-robin across the redeeming users, so a single user redeeming many times does not delay everyone else.
+ * Redemptions arriving while the queue is full are canceled, which refunds them, or deferred until there is space;
+ * redemptions exceeding the maximum amount of deferred redemptions are canceled as well.
+ */
+public class RedemptionQueue {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RedemptionQueue.class);
+
+    private final Executor executor;
+    private final Supplier<ConfigSnapshot.QueueConfig> config;
+    private final BiConsumer<Redemption, Throwable> completion;
+
+    private final Map<String, Deque<Entry>> users;
+    private final Deque<String> rotation;
+    private final Deque<Entry> deferred;
+
+    private int size;
+    private int running;
+
+    private long admitted;
+    private long canceled;
+    private long totalWaitNanos;
+    private long maxWaitNanos;
+
+    /**
+     * @param executor   The executor running the handlers.
+     * @param config     The supplier of the queue settings, read on every change of the queue.
+     * @param completion The action called with the redemption and the failure, or null, once it was handled or dropped.
+     */
+    public RedemptionQueue(@NotNull Executor executor, @NotNull Supplier<ConfigSnapshot.QueueConfig> config,
+                           @NotNull BiConsumer<Redemption, Throwable> completion) {
+        this.executor = executor;
+        this.config = config;
+        this.completion = completion;
+        this.users = new HashMap<>();
+        this.rotation = new ArrayDeque<>();
+        this.deferred = new ArrayDeque<>();
+    }
+
+    /**
+     * Queue a redemption.
+     *
+     * @param redemption The redemption.
+     * @param handler    The handler of its reward.
+     */
+    public void submit(@NotNull Redemption redemption, @NotNull RewardHandler handler) {
+        Entry entry = new Entry(redemption, handler, System.nanoTime());
+        boolean rejected = false;
+
+        synchronized (this) {
+            ConfigSnapshot.QueueConfig config = this.config.get();
+
+            if (this.size < Math.max(1, config.capacity())) {
+                this.add(entry);
+            } else if (OverflowPolicy.parse(config.overflow()) == OverflowPolicy.DEFER
+                    && this.deferred.size() < config.maxDeferred()) {
+                this.deferred.addLast(entry);
+            } else {
+                this.canceled++;
+                rejected = true;
+            }
+        }
+
+        if (rejected) {
+            LOGGER.warn("Redemption queue full, canceling redemption {} of {}", redemption.id(), redemption.userLogin());
+            this.completion.accept(redemption, new RejectedExecutionException("Redemption queue full"));
+            return;
+        }
+
+        this.pump();
+    }
+
+    /**
+     * Get the amount of redemptions waiting in the queue.
+     *
+     * @return The amount of redemptions.
+     */
+    public synchronized int getDepth() {
+        return this.size;
+    }
+
+    /**
+     * Get the amount of redemptions deferred because the queue was full.
+     *
+     * @return The amount of redemptions.
+     */
+    public synchronized int getDeferred() {
+        return this.deferred.size();
+    }
+
+    /**
+     * Get the amount of redemptions being handled.
+     *
+     * @return The amount of redemptions.
+     */
+    public synchronized int getRunning() {
+        return this.running;
+    }
+
+    /**
+     * Get the amount of redemptions canceled because the queue was full and they could not be deferred.
+     *
+     * @return The amount of redemptions.
+     */
+    public synchronized long getCanceled() {
+        return this.canceled;
+    }
+
+    /**
+     * Get the average time redemptions waited before they were handled.
+     *
+     * @return The time in milliseconds.
+     */
+    public synchronized long getAverageWaitMillis() {
+        return this.admitted == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(this.totalWaitNanos / this.admitted);
+    }
+
+    /**
+     * Get the longest time a redemption waited before it was handled.
+     *
+     * @return The time in milliseconds.
+     */
+    public synchronized long getMaxWaitMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(this.maxWaitNanos);
+    }
+
+    private void add(@NotNull Entry entry) {
+        Deque<Entry> queue = this.users.computeIfAbsent(entry.redemption.userId(), userId -> new ArrayDeque<>());
+
+        if (queue.isEmpty()) {
+            this.rotation.addLast(entry.redemption.userId());
+        }
+
+        queue.addLast(entry);
+        this.size++;
+    }
+
+    /**
+     * Start handling queued redemptions while workers are free.
+     */
+    private void pump() {
+        List<Entry> start = new ArrayList<>();
+
+        synchronized (this) {
+            ConfigSnapshot.QueueConfig config = this.config.get();
+            int capacity = Math.max(1, config.capacity());
+            int workers = Math.max(1, config.workers());
+
+            while (true) {
+                while (this.size < capacity && !this.deferred.isEmpty()) {
+                    this.add(this.deferred.pollFirst());
+                }
+
+                Entry entry = this.running < workers ? this.poll() : null;
+
+                if (entry == null) {
+                    break;
+                }
+
+                long wait = System.nanoTime() - entry.enqueuedAt;
+
+                this.running++;
+                this.admitted++;
+                this.totalWaitNanos += wait;
+                this.maxWaitNanos = Math.max(this.maxWaitNanos, wait);
+                start.add(entry);
+            }
+        }
+
+        start.forEach(this::handle);
+    }
+
+    /**
+     * Take the next redemption of the user whose turn it is.
+     *
+     * @return The redemption or null when the queue is empty.
+     */
+    @Nullable
+    private Entry poll() {
+        String userId = this.rotation.pollFirst();
+
+        if (userId == null) {
+            return null;
+        }
+
+        Deque<Entry> queue = this.users.get(userId);
+        Entry entry = queue.pollFirst();
+
+        if (queue.isEmpty()) {
+            this.users.remove(userId);
+        } else {
+            this.rotation.addLast(userId);
+        }
+
+        this.size--;
+        return entry;
+    }
+
+    private void handle(@NotNull Entry entry) {
+        CompletableFuture<?> future;
+
+        try {
+            future = CompletableFuture.supplyAsync(() -> entry.handler.handle(entry.redemption), this.executor)
+                    .thenCompose(Function.identity());
+        } catch (RejectedExecutionException e) {
+            // e.g. while shutting down; the redemption is canceled instead of being left unfulfilled
+            future = CompletableFuture.failedFuture(e);
+        }
+
+        // not async: a rejected completion stage would drop the redemption without changing its status
+        future.whenComplete((o, throwable) -> {
+            synchronized (this) {
+                this.running--;
+            }
+
+            try {
+                this.completion.accept(entry.redemption, throwable);
+            } finally {
+                this.pump();
+            }
+        });
+    }
+
+    public enum OverflowPolicy {
+        CANCEL, DEFER;
+
+        /**
+         * Parse the overflow policy from the config.
+         *
+         * @param value The value from the config, e.g. "cancel".
+         * @return The policy; {@link #CANCEL} when the value is unknown.
+         */
+        public static OverflowPolicy parse(@NotNull String value) {
+            return value.equalsIgnoreCase("defer") ? DEFER : CANCEL;
+        }
+    }
+
+    private record Entry(Redemption redemption, RewardHandler handler, long enqueuedAt) {
+    }
+}
@@ -0,0 +1,307 @@
+package tv.banko.songrequest.twitch.reward;
+
+import com.github.twitch4j.eventsub.domain.RedemptionStatus;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Collects the status updates of redemptions and sends them in batches.
+ * Updates of the same reward and status are sent together once the window after the first one passed,
+ * or as soon as the maximum amount of ids of a single update is reached.
+ * A batch whose call failed is retried as a whole with a growing delay, and its redemptions fail once the last
+ * attempt failed. Redemptions missing in the response of a successful call are retried one by one,
+ * so a single invalid id does not fail the other redemptions.
+ */
+public class RedemptionStatusBatcher {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RedemptionStatusBatcher.class);
+
+    public static final long WINDOW_MILLIS = 500;
+    public static final int MAX_IDS = 50;
+    public static final int MAX_ATTEMPTS = 3;
+    public static final long RETRY_DELAY_MILLIS = 1000;
+
+    private final ScheduledExecutorService scheduler;
+    private final Executor executor;
+    private final Updater updater;
+    private final long retryDelayMillis;
+    private final Map<Key, Batch> batches;
+
+    private long requests;
+    private long calls;
+    private long retries;
+    private long batchRetries;
+    private long failures;
+
+    /**
+     * @param scheduler The scheduler closing the windows.
+     * @param executor  The executor sending the updates.
+     * @param updater   The function updating the status of redemptions of a reward.
+     */
+    public RedemptionStatusBatcher(@NotNull ScheduledExecutorService scheduler, @NotNull Executor executor,
+                                   @NotNull Updater updater) {
+        this(scheduler, executor, updater, RETRY_DELAY_MILLIS);
+    }
+
+    /**
+     * @param scheduler        The scheduler closing the windows and delaying the retries.
+     * @param executor         The executor sending the updates.
+     * @param updater          The function updating the status of redemptions of a reward.
+     * @param retryDelayMillis The delay before the first retry of a failed batch, doubled for every further retry.
+     */
+    RedemptionStatusBatcher(@NotNull ScheduledExecutorService scheduler, @NotNull Executor executor,
+                            @NotNull Updater updater, long retryDelayMillis) {
+        this.scheduler = scheduler;
+        this.executor = executor;
+        this.updater = updater;
+        this.retryDelayMillis = retryDelayMillis;
+        this.batches = new HashMap<>();
+    }
+
+    /**
+     * Queue the status update of a redemption.
+     *
+     * @param rewardId     The id of the reward.
+     * @param redemptionId The id of the redemption.
+     * @param status       The new status.
+     * @return A completable future which completes once the status was updated.
+     */
+    public CompletableFuture<Void> update(@NotNull String rewardId, @NotNull String redemptionId,
+                                         @NotNull RedemptionStatus status) {
+        Key key = new Key(rewardId, status);
+        Batch full = null;
+        CompletableFuture<Void> future;
+
+        synchronized (this) {
+            this.requests++;
+
+            Batch batch = this.batches.computeIfAbsent(key, k -> new Batch());
+            future = batch.redemptions.computeIfAbsent(redemptionId, id -> new CompletableFuture<>());
+
+            if (batch.redemptions.size() >= MAX_IDS) {
+                this.batches.remove(key);
+                full = batch;
+
+                if (batch.flush != null) {
+                    batch.flush.cancel(false);
+                }
+            } else if (batch.flush == null) {
+                batch.flush = this.scheduler.schedule(() -> this.flush(key), WINDOW_MILLIS, TimeUnit.MILLISECONDS);
+            }
+        }
+
+        if (full != null) {
+            this.send(key, full.redemptions);
+        }
+
+        return future;
+    }
+
+    /**
+     * Get the amount of redemptions waiting for their batch.
+     *
+     * @return The amount of redemptions.
+     */
+    public synchronized int getPending() {
+        return this.batches.values().stream().mapToInt(batch -> batch.redemptions.size()).sum();
+    }
+
+    /**
+     * Get the amount of requested status updates.
+     *
+     * @return The amount of updates.
+     */
+    public synchronized long getRequests() {
+        return this.requests;
+    }
+
+    /**
+     * Get the amount of update calls, including the retries of batches and single redemptions.
+     *
+     * @return The amount of calls.
+     */
+    public synchronized long getCalls() {
+        return this.calls;
+    }
+
+    /**
+     * Get the amount of redemptions retried on their own after their batch did not update them.
+     *
+     * @return The amount of redemptions.
+     */
+    public synchronized long getRetries() {
+        return this.retries;
+    }
+
+    /**
+     * Get the amount of batches retried as a whole after their call failed.
+     *
+     * @return The amount of batches.
+     */
+    public synchronized long getBatchRetries() {
+        return this.batchRetries;
+    }
+
+    /**
+     * Get the amount of redemptions whose status could not be updated.
+     *
+     * @return The amount of redemptions.
+     */
+    public synchronized long getFailures() {
+        return this.failures;
+    }
+
+    private void flush(@NotNull Key key) {
+        Batch batch;
+
+        synchronized (this) {
+            batch = this.batches.remove(key);
+        }
+
+        if (batch != null) {
+            this.send(key, batch.redemptions);
+        }
+    }
+
+    private void send(@NotNull Key key, @NotNull Map<String, CompletableFuture<Void>> redemptions) {
+        this.send(key, redemptions, 1);
+    }
+
+    private void send(@NotNull Key key, @NotNull Map<String, CompletableFuture<Void>> redemptions, int attempt) {
+        CompletableFuture.runAsync(() -> {
+            Set<String> updated = this.call(key, redemptions.keySet());
+
+            if (updated == null) {
+                this.retry(key, redemptions, attempt);
+                return;
+            }
+
+            List<String> missing = new ArrayList<>();
+
+            for (Map.Entry<String, CompletableFuture<Void>> entry : redemptions.entrySet()) {
+                if (updated.contains(entry.getKey())) {
+                    entry.getValue().complete(null);
+                } else {
+                    missing.add(entry.getKey());
+                }
+            }
+
+            if (missing.isEmpty()) {
+                return;
+            }
+
+            if (redemptions.size() == 1) {
+                this.fail(key, redemptions);
+                return;
+            }
+
+            synchronized (this) {
+                this.retries += missing.size();
+            }
+
+            LOGGER.debug("Retrying {} of {} redemptions of reward {} one by one", missing.size(), redemptions.size(),
+                    key.rewardId());
+
+            for (String id : missing) {
+                this.send(key, Map.of(id, redemptions.get(id)));
+            }
+        }, this.executor);
+    }
+
+    /**
+     * Send a batch whose call failed again after a delay, or fail its redemptions after the last attempt.
+     *
+     * @param key         The reward and status.
+     * @param redemptions The redemptions of the batch.
+     * @param attempt     The failed attempt, starting at 1.
+     */
+    private void retry(@NotNull Key key, @NotNull Map<String, CompletableFuture<Void>> redemptions, int attempt) {
+        if (attempt >= MAX_ATTEMPTS) {
+            this.fail(key, redemptions);
+            return;
+        }
+
+        synchronized (this) {
+            this.batchRetries++;
+        }
+
+        long delay = this.retryDelayMillis << (attempt - 1);
+        LOGGER.debug("Retrying {} redemptions of reward {} in {} ms", redemptions.size(), key.rewardId(), delay);
+
+        try {
+            this.scheduler.schedule(() -> this.send(key, redemptions, attempt + 1), delay, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // e.g. while shutting down
+            this.fail(key, redemptions);
+        }
+    }
+
+    /**
+     * Update the status of redemptions.
+     *
+     * @param key The reward and status.
+     * @param ids The ids of the redemptions.
+     * @return The ids of the updated redemptions, or null when the call failed.
+     */
+    @Nullable
+    private Set<String> call(@NotNull Key key, @NotNull Collection<String> ids) {
+        synchronized (this) {
+            this.calls++;
+        }
+
+        try {
+            return new HashSet<>(this.updater.update(key.rewardId(), List.copyOf(ids), key.status()));
+        } catch (RuntimeException e) {
+            LOGGER.warn("Changing the status of {} redemptions of reward {} to {} failed", ids.size(), key.rewardId(),
+                    key.status(), e);
+            return null;
+        }
+    }
+
+    private void fail(@NotNull Key key, @NotNull Map<String, CompletableFuture<Void>> redemptions) {
+        synchronized (this) {
+            this.failures += redemptions.size();
+        }
+
+        for (Map.Entry<String, CompletableFuture<Void>> entry : redemptions.entrySet()) {
+            entry.getValue().completeExceptionally(new IllegalStateException("Changing the status of redemption "
+                    + entry.getKey() + " to " + key.status() + " failed"));
+        }
+    }
+
+    /**
+     * Updates the status of redemptions of a reward.
+     */
+    @FunctionalInterface
+    public interface Updater {
+
+        /**
+         * Update the status of redemptions of a reward.
+         *
+         * @param rewardId The id of the reward.
+         * @param ids      The ids of the redemptions, at most {@link #MAX_IDS}.
+         * @param status   The new status.
+         * @return The ids of the updated redemptions.
+         */
+        Collection<String> update(@NotNull String rewardId, @NotNull List<String> ids, @NotNull RedemptionStatus status);
+    }
+
+    private record Key(String rewardId, RedemptionStatus status) {
+    }
+
+    private static class Batch {
+
+        private final Map<String, CompletableFuture<Void>> redemptions = new LinkedHashMap<>();
+        private ScheduledFuture<?> flush;
+    }
+}
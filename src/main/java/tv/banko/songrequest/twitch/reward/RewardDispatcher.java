@@ -0,0 +1,76 @@
+package tv.banko.songrequest.twitch.reward;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Routes redemptions to the handler of their reward.
+ * The handlers are registered per reward type, while the routes map the ids of the rewards on Twitch to the handlers.
+ * The routes are replaced as a whole whenever the rewards change, so a lookup never sees a partially built table.
+ */
+public class RewardDispatcher {
+
+    private final Map<RewardType, RewardHandler> handlers;
+    private volatile Map<String, RewardHandler> routes;
+
+    public RewardDispatcher() {
+        this.handlers = new EnumMap<>(RewardType.class);
+        this.routes = Map.of();
+    }
+
+    /**
+     * Register the handler of a reward type.
+     * Handlers have to be registered before the routes are built.
+     *
+     * @param type    The reward type.
+     * @param handler The handler.
+     * @return This dispatcher.
+     */
+    public RewardDispatcher register(@NotNull RewardType type, @NotNull RewardHandler handler) {
+        this.handlers.put(type, handler);
+        return this;
+    }
+
+    /**
+     * Replace the routes.
+     *
+     * @param rewards The reward types by the ids of their rewards on Twitch.
+     */
+    public void setRoutes(@NotNull Map<String, RewardType> rewards) {
+        Map<String, RewardHandler> routes = new HashMap<>();
+
+        rewards.forEach((rewardId, type) -> {
+            RewardHandler handler = this.handlers.get(type);
+
+            if (handler != null) {
+                routes.put(rewardId, handler);
+            }
+        });
+
+        this.routes = Map.copyOf(routes);
+    }
+
+    /**
+     * Get the handler of a reward.
+     *
+     * @param rewardId The id of the reward on Twitch.
+     * @return The handler, or null when the reward is not handled by the application.
+     */
+    @Nullable
+    public RewardHandler getHandler(@NotNull String rewardId) {
+        return this.routes.get(rewardId);
+    }
+
+    /**
+     * Get the amount of routed rewards.
+     *
+     * @return The amount of rewards.
+     */
+    public int size() {
+        return this.routes.size();
+    }
+}
@@ -0,0 +1,21 @@
+package tv.banko.songrequest.twitch.reward;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Performs the action of a reward.
+ */
+@FunctionalInterface
+public interface RewardHandler {
+
+    /**
+     * Handle a redemption of the reward.
+     *
+     * @param redemption The redemption.
+     * @return A completable future which completes when the action was performed,
+     * or completes exceptionally when the redemption should be canceled.
+     */
+    CompletableFuture<?> handle(@NotNull Redemption redemption);
+}
@@ -0,0 +1,42 @@
+package tv.banko.songrequest.twitch.reward;
+
+import org.jetbrains.annotations.NotNull;
+import tv.banko.songrequest.config.ConfigSnapshot;
+
+import java.util.function.Function;
+
+/**
+ * The rewards created by the application, each with the config entry holding its title.
+ */
+public enum RewardType {
+
+    ADD_SONG(ConfigSnapshot.RedemptionConfig::addSong, true),
+    SKIP_SONG(ConfigSnapshot.RedemptionConfig::skipSong, false),
+    PLAY_LAST_SONG(ConfigSnapshot.RedemptionConfig::playLastSong, false),
+    SKIP_TEN_SECONDS(ConfigSnapshot.RedemptionConfig::skipTenSeconds, false),
+    PLAY_LAST_TEN_SECONDS(ConfigSnapshot.RedemptionConfig::playLastTenSeconds, false),
+    START_PLAYBACK(ConfigSnapshot.RedemptionConfig::startPlayback, false),
+    PAUSE_PLAYBACK(ConfigSnapshot.RedemptionConfig::pausePlayback, false);
+
+    private final Function<ConfigSnapshot.RedemptionConfig, String> title;
+    private final boolean userInputRequired;
+
+    RewardType(@NotNull Function<ConfigSnapshot.RedemptionConfig, String> title, boolean userInputRequired) {
+        this.title = title;
+        this.userInputRequired = userInputRequired;
+    }
+
+    /**
+     * Get the configured title of the reward.
+     *
+     * @param config The redemption section of the config.
+     * @return The title, or an empty string when the reward is disabled.
+     */
+    public String getTitle(@NotNull ConfigSnapshot.RedemptionConfig config) {
+        return this.title.apply(config);
+    }
+
+    public boolean isUserInputRequired() {
+        return userInputRequired;
+    }
+}
@@ -0,0 +1,105 @@
+package tv.banko.songrequest.util;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * A single value which is cached for a fixed time.
+ * Concurrent loads share a single loading future, and loads started before an invalidation are not cached.
+ *
+ * @param <T> The type of the value.
+ */
+public class CachedValue<T> {
+
+    private final Supplier<CompletableFuture<T>> loader;
+    private final long expireAfterMillis;
+    private final AtomicReference<CompletableFuture<T>> loading;
+
+    private volatile Entry<T> entry;
+    private long generation;
+
+    public CachedValue(@NotNull Supplier<CompletableFuture<T>> loader, long expireAfterMillis) {
+        this.loader = loader;
+        this.expireAfterMillis = expireAfterMillis;
+        this.loading = new AtomicReference<>();
+    }
+
+    /**
+     * Get the cached value or load it.
+     *
+     * @return A completable future which contains the value when the execution was successful.
+     */
+    public CompletableFuture<T> get() {
+        Entry<T> current = this.entry;
+
+        if (current != null && current.expiresAt() > System.currentTimeMillis()) {
+            return CompletableFuture.completedFuture(current.value());
+        }
+
+        while (true) {
+            CompletableFuture<T> existing = this.loading.get();
+
+            if (existing != null) {
+                return existing;
+            }
+
+            CompletableFuture<T> future = new CompletableFuture<>();
+
+            if (this.loading.compareAndSet(null, future)) {
+                this.load(future);
+                return future;
+            }
+        }
+    }
+
+    /**
+     * Drop the cached value, so the next call loads it again.
+     */
+    public void invalidate() {
+        synchronized (this) {
+            this.generation++;
+            this.entry = null;
+        }
+        this.loading.set(null);
+    }
+
+    private void load(@NotNull CompletableFuture<T> future) {
+        long loadGeneration;
+
+        synchronized (this) {
+            loadGeneration = this.generation;
+        }
+
+        CompletableFuture<T> load;
+
+        try {
+            load = this.loader.get();
+        } catch (Exception e) {
+            load = CompletableFuture.failedFuture(e);
+        }
+
+        load.whenComplete((value, throwable) -> {
+            if (throwable == null) {
+                synchronized (this) {
+                    if (loadGeneration == this.generation) {
+                        this.entry = new Entry<>(value, System.currentTimeMillis() + this.expireAfterMillis);
+                    }
+                }
+            }
+
+            this.loading.compareAndSet(future, null);
+
+            if (throwable != null) {
+                future.completeExceptionally(throwable);
+                return;
+            }
+            future.complete(value);
+        });
+    }
+
+    private record Entry<T>(T value, long expiresAt) {
+    }
+}
@@ -0,0 +1,180 @@
+package tv.banko.songrequest.util;
+
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import tv.banko.songrequest.config.ConfigSnapshot;
+
+import java.io.IOException;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeoutException;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Stops calling an endpoint after consecutive failures.
+ * While the circuit is open, calls fail fast with {@link CircuitBreakerOpenException}. Once the open time passed,
+ * the circuit is half-open and a single probe call is let through, which closes the circuit when it succeeds
+ * and opens it again when it fails.
+ * Only I/O failures and timeouts count; e.g. a rejected request is an answer of a healthy endpoint.
+ * Canceling the returned future cancels the call.
+ */
+public class CircuitBreaker {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CircuitBreaker.class);
+
+    private final String name;
+    private final Supplier<ConfigSnapshot.HttpConfig> config;
+    private final LongSupplier clock;
+
+    private State state;
+    private int failures;
+    private long openedAt;
+    private boolean probing;
+    private long rejected;
+
+    public CircuitBreaker(@NotNull String name, @NotNull Supplier<ConfigSnapshot.HttpConfig> config) {
+        this(name, config, System::currentTimeMillis);
+    }
+
+    /**
+     * @param name   The name of the endpoint.
+     * @param config The supplier of the current http config.
+     * @param clock  The clock returning the current time in milliseconds.
+     */
+    public CircuitBreaker(@NotNull String name, @NotNull Supplier<ConfigSnapshot.HttpConfig> config,
+                          @NotNull LongSupplier clock) {
+        this.name = name;
+        this.config = config;
+        this.clock = clock;
+        this.state = State.CLOSED;
+    }
+
+    /**
+     * Execute a call unless the circuit is open.
+     *
+     * @param call The supplier starting the call.
+     * @param <T>  The result type of the call.
+     * @return A completable future which contains the result of the call,
+     * or fails with {@link CircuitBreakerOpenException} when the circuit is open.
+     */
+    public <T> CompletableFuture<T> execute(@NotNull Supplier<CompletableFuture<T>> call) {
+        if (!this.tryAcquire()) {
+            return CompletableFuture.failedFuture(new CircuitBreakerOpenException(this.name));
+        }
+
+        CompletableFuture<T> future;
+
+        try {
+            future = call.get();
+        } catch (Exception e) {
+            future = CompletableFuture.failedFuture(e);
+        }
+
+        CompletableFuture<T> started = future;
+        CompletableFuture<T> result = started.whenComplete((t, throwable) -> {
+            Throwable cause = throwable instanceof CompletionException && throwable.getCause() != null
+                    ? throwable.getCause() : throwable;
+
+            if (cause instanceof IOException || cause instanceof TimeoutException) {
+                this.onFailure();
+            } else if (cause instanceof CancellationException) {
+                this.onCancel();
+            } else {
+                this.onSuccess();
+            }
+        });
+
+        result.whenComplete((t, throwable) -> {
+            if (throwable instanceof CancellationException) {
+                started.cancel(false);
+            }
+        });
+        return result;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public synchronized State getState() {
+        return this.state;
+    }
+
+    /**
+     * Get the amount of calls rejected while the circuit was open.
+     *
+     * @return The amount of calls.
+     */
+    public synchronized long getRejected() {
+        return this.rejected;
+    }
+
+    private synchronized boolean tryAcquire() {
+        switch (this.state) {
+            case OPEN -> {
+                if (this.clock.getAsLong() - this.openedAt < this.config.get().circuitOpenMillis()) {
+                    this.rejected++;
+                    return false;
+                }
+
+                this.transition(State.HALF_OPEN);
+                this.probing = true;
+                return true;
+            }
+            case HALF_OPEN -> {
+                if (this.probing) {
+                    this.rejected++;
+                    return false;
+                }
+
+                this.probing = true;
+                return true;
+            }
+            default -> {
+                return true;
+            }
+        }
+    }
+
+    private synchronized void onSuccess() {
+        this.failures = 0;
+        this.probing = false;
+
+        if (this.state != State.CLOSED) {
+            this.transition(State.CLOSED);
+        }
+    }
+
+    private synchronized void onCancel() {
+        this.probing = false;
+    }
+
+    private synchronized void onFailure() {
+        this.failures++;
+        this.probing = false;
+
+        if (this.state == State.HALF_OPEN || (this.state == State.CLOSED
+                && this.failures >= this.config.get().circuitFailureThreshold())) {
+            this.openedAt = this.clock.getAsLong();
+            this.transition(State.OPEN);
+        }
+    }
+
+    private void transition(@NotNull State state) {
+        if (state == State.CLOSED) {
+            LOGGER.info("Circuit of {} changed from {} to {}", this.name, this.state, state);
+        } else {
+            LOGGER.warn("Circuit of {} changed from {} to {} after {} failures", this.name, this.state, state,
+                    this.failures);
+        }
+
+        this.state = state;
+    }
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+}
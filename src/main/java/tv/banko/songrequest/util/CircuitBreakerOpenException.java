@@ -0,0 +1,13 @@
+package tv.banko.songrequest.util;
+
+/**
+ * Thrown instead of calling an endpoint while its circuit is open.
+ */
+public class CircuitBreakerOpenException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public CircuitBreakerOpenException(String name) {
+        super("Circuit of " + name + " is open");
+    }
+}
@@ -0,0 +1,78 @@
+package tv.banko.songrequest.util;
+
+import org.jetbrains.annotations.NotNull;
+import tv.banko.songrequest.config.ConfigSnapshot;
+
+import java.net.URI;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+/**
+ * Holds a circuit breaker per endpoint.
+ * Endpoints are identified by the method, the host and the path with ids replaced,
+ * so e.g. all track lookups share "GET api.spotify.com/v1/tracks/{id}".
+ */
+public class CircuitBreakerRegistry {
+
+    private static final Pattern ID = Pattern.compile("\\d+|[A-Za-z0-9]{16,}");
+
+    private final Supplier<ConfigSnapshot.HttpConfig> config;
+    private final LongSupplier clock;
+    private final Map<String, CircuitBreaker> breakers;
+
+    public CircuitBreakerRegistry(@NotNull Supplier<ConfigSnapshot.HttpConfig> config) {
+        this(config, System::currentTimeMillis);
+    }
+
+    /**
+     * @param config The supplier of the current http config.
+     * @param clock  The clock of the circuit breakers, returning the current time in milliseconds.
+     */
+    public CircuitBreakerRegistry(@NotNull Supplier<ConfigSnapshot.HttpConfig> config, @NotNull LongSupplier clock) {
+        this.config = config;
+        this.clock = clock;
+        this.breakers = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Get the circuit breaker of an endpoint.
+     *
+     * @param method The method used to access the endpoint.
+     * @param url    The url of the request.
+     * @return The circuit breaker.
+     */
+    public CircuitBreaker get(@NotNull HTTPMethod method, @NotNull String url) {
+        return this.breakers.computeIfAbsent(getEndpoint(method, url), name -> new CircuitBreaker(name, this.config,
+                this.clock));
+    }
+
+    /**
+     * Get the circuit breakers of all endpoints called so far.
+     *
+     * @return The circuit breakers.
+     */
+    public Collection<CircuitBreaker> getAll() {
+        return Collections.unmodifiableCollection(this.breakers.values());
+    }
+
+    static String getEndpoint(@NotNull HTTPMethod method, @NotNull String url) {
+        int query = url.indexOf('?');
+        URI uri = URI.create(query >= 0 ? url.substring(0, query) : url);
+        StringBuilder builder = new StringBuilder(method.name()).append(' ').append(uri.getHost());
+
+        for (String segment : uri.getRawPath().split("/")) {
+            if (segment.isEmpty()) {
+                continue;
+            }
+
+            builder.append('/').append(ID.matcher(segment).matches() ? "{id}" : segment);
+        }
+
+        return builder.toString();
+    }
+}
@@ -0,0 +1,162 @@
+package tv.banko.songrequest.util;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * A bounded cache which evicts the least recently used entry when full and drops entries after a fixed time.
+ * Concurrent loads of the same key share a single loading future.
+ *
+ * @param <K> The type of the keys.
+ * @param <V> The type of the values.
+ */
+public class ExpiringCache<K, V> {
+
+    private final int maximumSize;
+    private final long expireAfterMillis;
+
+    private final LinkedHashMap<K, CacheEntry<V>> entries;
+    private final Map<K, CompletableFuture<V>> loading;
+
+    private final LongAdder hits;
+    private final LongAdder misses;
+
+    public ExpiringCache(int maximumSize, long expireAfterMillis) {
+        this.maximumSize = maximumSize;
+        this.expireAfterMillis = expireAfterMillis;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, CacheEntry<V>> eldest) {
+                return size() > ExpiringCache.this.maximumSize;
+            }
+        };
+        this.loading = new ConcurrentHashMap<>();
+        this.hits = new LongAdder();
+        this.misses = new LongAdder();
+    }
+
+    /**
+     * Get the cached value of a key or load it.
+     * Failed loads are not cached.
+     *
+     * @param key    The key.
+     * @param loader The function loading the value when it is not cached.
+     * @return A completable future which contains the value when the execution was successful.
+     */
+    public CompletableFuture<V> get(@NotNull K key, @NotNull Function<K, CompletableFuture<V>> loader) {
+        V cached = this.getIfPresent(key);
+
+        if (cached != null) {
+            this.hits.increment();
+            return CompletableFuture.completedFuture(cached);
+        }
+
+        this.misses.increment();
+
+        CompletableFuture<V> future = new CompletableFuture<>();
+        CompletableFuture<V> existing = this.loading.putIfAbsent(key, future);
+
+        if (existing != null) {
+            return existing;
+        }
+
+        CompletableFuture<V> load;
+
+        try {
+            load = loader.apply(key);
+        } catch (Exception e) {
+            load = CompletableFuture.failedFuture(e);
+        }
+
+        load.whenComplete((value, throwable) -> {
+            if (throwable == null && value != null) {
+                this.put(key, value);
+            }
+
+            this.loading.remove(key, future);
+
+            if (throwable != null) {
+                future.completeExceptionally(throwable);
+                return;
+            }
+            future.complete(value);
+        });
+
+        return future;
+    }
+
+    /**
+     * Get the cached value of a key without loading it.
+     *
+     * @param key The key.
+     * @return The value or null when it is not cached or expired.
+     */
+    @Nullable
+    public V getIfPresent(@NotNull K key) {
+        synchronized (this.entries) {
+            CacheEntry<V> entry = this.entries.get(key);
+
+            if (entry == null) {
+                return null;
+            }
+
+            if (entry.expiresAt() <= System.currentTimeMillis()) {
+                this.entries.remove(key);
+                return null;
+            }
+
+            return entry.value();
+        }
+    }
+
+    /**
+     * Put a value into the cache.
+     *
+     * @param key   The key.
+     * @param value The value.
+     */
+    public void put(@NotNull K key, @NotNull V value) {
+        synchronized (this.entries) {
+            this.entries.put(key, new CacheEntry<>(value, System.currentTimeMillis() + this.expireAfterMillis));
+        }
+    }
+
+    /**
+     * Get the amount of cached entries, including expired ones which were not evicted yet.
+     *
+     * @return The amount of entries.
+     */
+    public int size() {
+        synchronized (this.entries) {
+            return this.entries.size();
+        }
+    }
+
+    /**
+     * Get the amount of lookups served from the cache.
+     *
+     * @return The amount of hits.
+     */
+    public long getHits() {
+        return this.hits.sum();
+    }
+
+    /**
+     * Get the amount of lookups which had to load the value.
+     *
+     * @return The amount of misses.
+     */
+    public long getMisses() {
+        return this.misses.sum();
+    }
+
+    private record CacheEntry<V>(V value, long expiresAt) {
+    }
+}
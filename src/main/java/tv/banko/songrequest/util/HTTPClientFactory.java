@@ -0,0 +1,138 @@
+package tv.banko.songrequest.util;
+
+import okhttp3.*;
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Creates the HTTP client shared by the Spotify and Twitch APIs.
+ */
+public final class HTTPClientFactory {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(HTTPClientFactory.class);
+
+    private static final Duration CONNECT_TIMEOUT = Duration.ofSeconds(5);
+    private static final Duration READ_TIMEOUT = Duration.ofSeconds(10);
+    private static final Duration WRITE_TIMEOUT = Duration.ofSeconds(10);
+    private static final Duration CALL_TIMEOUT = Duration.ofSeconds(20);
+
+    private static final int MAX_REQUESTS = 128;
+    private static final int MAX_REQUESTS_PER_HOST = 32;
+    private static final int MAX_IDLE_CONNECTIONS = 8;
+    private static final long KEEP_ALIVE_MINUTES = 5;
+
+    private HTTPClientFactory() {
+    }
+
+    /**
+     * Create the shared HTTP client.
+     * Callbacks run on the given executor, connections are kept alive for a few minutes and HTTP/2 is negotiated
+     * where the server supports it, so concurrent requests to a host share a single connection.
+     *
+     * @param executor The executor running the calls and their callbacks.
+     * @return The client.
+     */
+    public static OkHttpClient create(@NotNull ExecutorService executor) {
+        Dispatcher dispatcher = new Dispatcher(executor);
+        dispatcher.setMaxRequests(MAX_REQUESTS);
+        dispatcher.setMaxRequestsPerHost(MAX_REQUESTS_PER_HOST);
+
+        return new OkHttpClient.Builder()
+                .dispatcher(dispatcher)
+                .connectionPool(new ConnectionPool(MAX_IDLE_CONNECTIONS, KEEP_ALIVE_MINUTES, TimeUnit.MINUTES))
+                .protocols(List.of(Protocol.HTTP_2, Protocol.HTTP_1_1))
+                .connectTimeout(CONNECT_TIMEOUT)
+                .readTimeout(READ_TIMEOUT)
+                .writeTimeout(WRITE_TIMEOUT)
+                .callTimeout(CALL_TIMEOUT)
+                .retryOnConnectionFailure(true)
+                .build();
+    }
+
+    /**
+     * Send a request.
+     * Completing the returned future exceptionally, e.g. by a timeout or a cancel, cancels the call.
+     *
+     * @param client  The client.
+     * @param request The request.
+     * @return A completable future which contains the response when the request was sent.
+     */
+    public static CompletableFuture<Response> enqueue(@NotNull OkHttpClient client, @NotNull Request request) {
+        CompletableFuture<Response> future = new CompletableFuture<>();
+        Call newCall = client.newCall(request);
+
+        newCall.enqueue(new Callback() {
+            @Override
+            public void onFailure(@NotNull Call call, @NotNull IOException e) {
+                future.completeExceptionally(e);
+            }
+
+            @Override
+            public void onResponse(@NotNull Call call, @NotNull Response response) {
+                // nobody reads a response arriving after the future was completed
+                if (!future.complete(response)) {
+                    response.close();
+                }
+            }
+        });
+
+        future.whenComplete((response, throwable) -> {
+            if (throwable != null) {
+                newCall.cancel();
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Turn a server error response into a {@link HTTPStatusException}, so it is retried and counted by the circuit breaker.
+     *
+     * @param response The response.
+     * @return A completable future which contains the response, or fails when the server answered with 5xx.
+     */
+    public static CompletableFuture<Response> failOnServerError(@NotNull Response response) {
+        if (response.code() >= 500) {
+            response.close();
+            return CompletableFuture.failedFuture(new HTTPStatusException(response.code()));
+        }
+
+        return CompletableFuture.completedFuture(response);
+    }
+
+    /**
+     * Open a connection to a host ahead of time, so the first request does not pay for the TLS handshake.
+     * Any response counts as success; failures are logged and otherwise ignored.
+     *
+     * @param client The client.
+     * @param url    The url of the host, e.g. "https://api.spotify.com/".
+     * @return A completable future which completes when the connection is pooled or the attempt failed.
+     */
+    public static CompletableFuture<Void> warmUp(@NotNull OkHttpClient client, @NotNull String url) {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+
+        client.newCall(new Request.Builder().url(url).head().build()).enqueue(new Callback() {
+            @Override
+            public void onFailure(@NotNull Call call, @NotNull IOException e) {
+                LOGGER.warn("Warming up the connection to {} failed", url, e);
+                future.complete(null);
+            }
+
+            @Override
+            public void onResponse(@NotNull Call call, @NotNull Response response) {
+                LOGGER.debug("Warmed up the connection to {} ({})", url, response.protocol());
+                response.close();
+                future.complete(null);
+            }
+        });
+
+        return future;
+    }
+}
@@ -1,5 +1,21 @@
 package tv.banko.songrequest.util;
 
 public enum HTTPMethod {
-    GET, POST, PUT
+    GET(true), POST(false), PUT(true);
+
+    private final boolean idempotent;
+
+    HTTPMethod(boolean idempotent) {
+        this.idempotent = idempotent;
+    }
+
+    /**
+     * Check whether sending a request with this method twice has the same effect as sending it once,
+     * so it may be retried after a failure.
+     *
+     * @return True when the method is idempotent.
+     */
+    public boolean isIdempotent() {
+        return idempotent;
+    }
 }
@@ -0,0 +1,22 @@
+package tv.banko.songrequest.util;
+
+import java.io.IOException;
+
+/**
+ * Thrown when a server answered with an error status which is worth retrying, e.g. 503.
+ */
+public class HTTPStatusException extends IOException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int code;
+
+    public HTTPStatusException(int code) {
+        super("Error code " + code);
+        this.code = code;
+    }
+
+    public int getCode() {
+        return code;
+    }
+}
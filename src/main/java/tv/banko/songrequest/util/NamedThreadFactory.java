@@ -0,0 +1,30 @@
+package tv.banko.songrequest.util;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class NamedThreadFactory implements ThreadFactory {
+
+    private final String prefix;
+    private final AtomicInteger counter;
+
+    public NamedThreadFactory(@NotNull String prefix) {
+        this.prefix = prefix;
+        this.counter = new AtomicInteger();
+    }
+
+    /**
+     * Create a daemon thread named after the prefix and a running number.
+     *
+     * @param runnable The task of the thread.
+     * @return The created thread.
+     */
+    @Override
+    public Thread newThread(@NotNull Runnable runnable) {
+        Thread thread = new Thread(runnable, this.prefix + "-" + this.counter.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    }
+}
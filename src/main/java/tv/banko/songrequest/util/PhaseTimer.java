@@ -0,0 +1,76 @@
+package tv.banko.songrequest.util;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Measures the phases of an asynchronous process, e.g. the startup.
+ * Phases may run in parallel; they are listed in the order they completed.
+ */
+public class PhaseTimer {
+
+    private final long start;
+    private final Map<String, Long> phases;
+
+    public PhaseTimer() {
+        this.start = System.nanoTime();
+        this.phases = new LinkedHashMap<>();
+    }
+
+    /**
+     * Start a phase and record its duration once it completes, successfully or not.
+     *
+     * @param phase    The name of the phase.
+     * @param supplier The supplier starting the phase.
+     * @param <T>      The result type of the phase.
+     * @return The completable future of the phase.
+     */
+    public <T> CompletableFuture<T> time(@NotNull String phase, @NotNull Supplier<CompletableFuture<T>> supplier) {
+        long phaseStart = System.nanoTime();
+        CompletableFuture<T> future;
+
+        try {
+            future = supplier.get();
+        } catch (Exception e) {
+            future = CompletableFuture.failedFuture(e);
+        }
+
+        return future.whenComplete((t, throwable) -> {
+            synchronized (this.phases) {
+                this.phases.put(phase, System.nanoTime() - phaseStart);
+            }
+        });
+    }
+
+    /**
+     * Get the time passed since the timer was created.
+     *
+     * @return The time in milliseconds.
+     */
+    public long getElapsedMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - this.start);
+    }
+
+    /**
+     * Get the durations of the completed phases, e.g. "twitch client=12 ms, twitch rewards=340 ms".
+     *
+     * @return The durations.
+     */
+    @Override
+    public String toString() {
+        StringJoiner joiner = new StringJoiner(", ");
+
+        synchronized (this.phases) {
+            this.phases.forEach((phase, nanos) ->
+                    joiner.add(phase + "=" + TimeUnit.NANOSECONDS.toMillis(nanos) + " ms"));
+        }
+
+        return joiner.toString();
+    }
+}
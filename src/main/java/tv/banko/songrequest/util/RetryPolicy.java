@@ -0,0 +1,118 @@
+package tv.banko.songrequest.util;
+
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import tv.banko.songrequest.config.ConfigSnapshot;
+
+import java.io.IOException;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Retries failed idempotent calls with a jittered exponential backoff.
+ * Only I/O failures are retried, including retryable status codes reported as {@link HTTPStatusException};
+ * other failures, e.g. an open circuit, fail right away.
+ * Canceling the returned future cancels the current attempt and stops retrying.
+ */
+public class RetryPolicy {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RetryPolicy.class);
+
+    private final ScheduledExecutorService scheduler;
+    private final Supplier<ConfigSnapshot.HttpConfig> config;
+    private final AtomicLong retries;
+
+    public RetryPolicy(@NotNull ScheduledExecutorService scheduler, @NotNull Supplier<ConfigSnapshot.HttpConfig> config) {
+        this.scheduler = scheduler;
+        this.config = config;
+        this.retries = new AtomicLong();
+    }
+
+    /**
+     * Execute a call and retry it when it failed.
+     *
+     * @param idempotent Whether the call may be retried; non-idempotent calls are executed once.
+     * @param call       The supplier starting the call.
+     * @param <T>        The result type of the call.
+     * @return A completable future which contains the result of the first successful attempt.
+     */
+    public <T> CompletableFuture<T> execute(boolean idempotent, @NotNull Supplier<CompletableFuture<T>> call) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        int maxAttempts = idempotent ? Math.max(1, this.config.get().retryAttempts()) : 1;
+
+        this.attempt(call, 1, maxAttempts, result);
+        return result;
+    }
+
+    /**
+     * Get the amount of retried attempts.
+     *
+     * @return The amount of retries.
+     */
+    public long getRetries() {
+        return this.retries.get();
+    }
+
+    private <T> void attempt(@NotNull Supplier<CompletableFuture<T>> call, int attempt, int maxAttempts,
+                             @NotNull CompletableFuture<T> result) {
+        CompletableFuture<T> future;
+
+        try {
+            future = call.get();
+        } catch (Exception e) {
+            future = CompletableFuture.failedFuture(e);
+        }
+
+        CompletableFuture<T> current = future;
+        result.whenComplete((t, throwable) -> {
+            if (throwable instanceof CancellationException) {
+                current.cancel(false);
+            }
+        });
+
+        future.whenComplete((t, throwable) -> {
+            if (throwable == null) {
+                result.complete(t);
+                return;
+            }
+
+            Throwable cause = throwable instanceof CompletionException && throwable.getCause() != null
+                    ? throwable.getCause() : throwable;
+
+            // the caller gave up on the result, e.g. after a timeout
+            if (attempt >= maxAttempts || !(cause instanceof IOException) || result.isDone()) {
+                result.completeExceptionally(cause);
+                return;
+            }
+
+            long delay = this.getDelayMillis(attempt);
+            this.retries.incrementAndGet();
+            LOGGER.debug("Attempt {} of {} failed, retrying in {} ms", attempt, maxAttempts, delay, cause);
+
+            this.scheduler.schedule(() -> this.attempt(call, attempt + 1, maxAttempts, result),
+                    delay, TimeUnit.MILLISECONDS);
+        });
+    }
+
+    /**
+     * Get the delay before the next attempt: a random time up to the exponentially growing backoff,
+     * so clients failing at the same time do not retry at the same time.
+     *
+     * @param attempt The failed attempt, starting at 1.
+     * @return The delay in milliseconds.
+     */
+    long getDelayMillis(int attempt) {
+        ConfigSnapshot.HttpConfig config = this.config.get();
+        long backoff = Math.min(config.retryMaxDelayMillis(),
+                config.retryBaseDelayMillis() << Math.min(attempt - 1, 20));
+
+        return backoff / 2 + ThreadLocalRandom.current().nextLong(backoff / 2 + 1);
+    }
+}
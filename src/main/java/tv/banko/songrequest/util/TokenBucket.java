@@ -0,0 +1,81 @@
+package tv.banko.songrequest.util;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * A token bucket estimating the remaining budget of a rate limit.
+ * The bucket starts full and refills continuously up to its capacity.
+ */
+public class TokenBucket {
+
+    private final double capacity;
+    private final double tokensPerNano;
+    private final LongSupplier clock;
+
+    private double tokens;
+    private long lastRefill;
+
+    /**
+     * @param capacity        The maximum amount of tokens, i.e. the burst size.
+     * @param tokensPerSecond The amount of tokens added per second.
+     */
+    public TokenBucket(double capacity, double tokensPerSecond) {
+        this(capacity, tokensPerSecond, System::nanoTime);
+    }
+
+    /**
+     * @param capacity        The maximum amount of tokens, i.e. the burst size.
+     * @param tokensPerSecond The amount of tokens added per second.
+     * @param clock           The clock returning the current time in nanoseconds.
+     */
+    public TokenBucket(double capacity, double tokensPerSecond, @NotNull LongSupplier clock) {
+        this.capacity = capacity;
+        this.tokensPerNano = tokensPerSecond / TimeUnit.SECONDS.toNanos(1);
+        this.clock = clock;
+        this.tokens = capacity;
+        this.lastRefill = clock.getAsLong();
+    }
+
+    /**
+     * Take a token if one is available.
+     *
+     * @return True when a token was taken.
+     */
+    public synchronized boolean tryAcquire() {
+        this.refill();
+
+        if (this.tokens < 1) {
+            return false;
+        }
+
+        this.tokens--;
+        return true;
+    }
+
+    /**
+     * Get the time until the next token is available.
+     *
+     * @return The time in nanoseconds, or 0 when a token is available.
+     */
+    public synchronized long getNanosUntilAvailable() {
+        this.refill();
+        return this.tokens >= 1 ? 0 : (long) Math.ceil((1 - this.tokens) / this.tokensPerNano);
+    }
+
+    /**
+     * Remove all tokens, e.g. when the server reported that the limit was reached.
+     */
+    public synchronized void drain() {
+        this.refill();
+        this.tokens = 0;
+    }
+
+    private void refill() {
+        long now = this.clock.getAsLong();
+        this.tokens = Math.min(this.capacity, this.tokens + (now - this.lastRefill) * this.tokensPerNano);
+        this.lastRefill = now;
+    }
+}
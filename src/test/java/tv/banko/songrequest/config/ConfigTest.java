@@ -0,0 +1,108 @@
+package tv.banko.songrequest.config;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests reloading the config after the file was changed outside the application.
+ */
+class ConfigTest {
+
+    @TempDir
+    Path directory;
+
+    private Path file;
+    private Config config;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        this.file = this.directory.resolve("config.json");
+        Files.writeString(this.file, """
+                {
+                    "twitch": {"refreshToken": "old", "channel": "Channel"},
+                    "spotify": {"playlistID": "playlist"}
+                }
+                """);
+        this.config = new Config(this.file.toFile());
+    }
+
+    @Test
+    void externalEditKeepsUnwrittenValues() throws IOException {
+        this.config.setValue("twitch.refreshToken", "rotated");
+
+        // edited before the rotated token was written
+        write("{\"twitch\": {\"refreshToken\": \"old\", \"channel\": \"Other\"}, \"spotify\": {\"playlistID\": \"playlist\"}}");
+        this.config.reload();
+
+        assertEquals("rotated", this.config.getTwitchRefreshToken());
+        assertEquals("Other", this.config.getTwitchChannelName());
+
+        this.config.shutdown();
+        JsonObject written = read();
+        assertEquals("rotated", written.getAsJsonObject("twitch").get("refreshToken").getAsString());
+        assertEquals("Other", written.getAsJsonObject("twitch").get("channel").getAsString());
+    }
+
+    @Test
+    void externalEditOfWrittenValueWins() throws IOException {
+        this.config.setValue("twitch.refreshToken", "rotated");
+        this.config.shutdown();
+
+        write("{\"twitch\": {\"refreshToken\": \"manual\", \"channel\": \"Channel\"}, \"spotify\": {\"playlistID\": \"playlist\"}}");
+        this.config.reload();
+
+        assertEquals("manual", this.config.getTwitchRefreshToken());
+    }
+
+    @Test
+    void removedValuesAreRemoved() throws IOException {
+        write("{\"twitch\": {\"refreshToken\": \"old\", \"channel\": \"Channel\"}, \"spotify\": {}}");
+        this.config.reload();
+
+        assertTrue(this.config.getSpotifyPlaylistID().isEmpty());
+    }
+
+    @Test
+    void onlyAffectedListenersAreNotified() throws IOException {
+        List<String> notified = new ArrayList<>();
+        this.config.addListener(snapshot -> snapshot.twitch().channel(), snapshot -> notified.add("channel"));
+        this.config.addListener(snapshot -> snapshot.spotify().playlistID(), snapshot -> notified.add("playlist"));
+
+        write("{\"twitch\": {\"refreshToken\": \"old\", \"channel\": \"Channel\"}, \"spotify\": {\"playlistID\": \"other\"}}");
+        this.config.reload();
+
+        assertEquals(List.of("playlist"), notified);
+    }
+
+    @Test
+    void ownWritesAreIgnored() {
+        List<String> notified = new ArrayList<>();
+        this.config.addListener(snapshot -> snapshot.twitch().refreshToken(), snapshot -> notified.add("token"));
+
+        this.config.setValue("twitch.refreshToken", "rotated");
+        this.config.shutdown();
+        this.config.reload();
+
+        assertEquals("rotated", this.config.getTwitchRefreshToken());
+        assertTrue(notified.isEmpty());
+    }
+
+    private void write(String content) throws IOException {
+        Files.writeString(this.file, content);
+    }
+
+    private JsonObject read() throws IOException {
+        return JsonParser.parseString(Files.readString(this.file)).getAsJsonObject();
+    }
+}
@@ -0,0 +1,193 @@
+package tv.banko.songrequest.spotify;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import tv.banko.songrequest.SongRequest;
+import tv.banko.songrequest.config.Config;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the access token regeneration of {@link SpotifyAPI} against a stubbed token endpoint.
+ */
+class SpotifyAPITest {
+
+    private static final long TIMEOUT_MILLIS = 500;
+
+    @TempDir
+    Path directory;
+
+    private HttpServer server;
+    private AtomicInteger requests;
+    private volatile Handler handler;
+    private SpotifyAPI api;
+    private Config config;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        this.requests = new AtomicInteger();
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        this.server.setExecutor(Executors.newCachedThreadPool());
+        this.server.createContext("/api/token", exchange -> {
+            this.requests.incrementAndGet();
+            this.handler.handle(exchange);
+        });
+        this.server.start();
+
+        Path file = this.directory.resolve("config.json");
+        Files.writeString(file, """
+                {
+                    "twitch": {},
+                    "spotify": {
+                        "token": "",
+                        "refreshToken": "REFRESH_TOKEN",
+                        "expiresAt": 0,
+                        "clientId": "CLIENT_ID",
+                        "clientSecret": "CLIENT_SECRET",
+                        "redirectURI": "https://localhost:8080"
+                    }
+                }
+                """);
+
+        this.config = new Config(file.toFile());
+        SongRequest request = new SongRequest(this.config);
+        this.api = new SpotifyAPI(request.getSpotify(),
+                "http://127.0.0.1:" + this.server.getAddress().getPort() + "/api/token", TIMEOUT_MILLIS);
+    }
+
+    @AfterEach
+    void tearDown() {
+        this.server.stop(0);
+        // write the saved token now instead of into the deleted test directory
+        this.config.shutdown();
+    }
+
+    @Test
+    void concurrentCallersShareOneRefresh() throws Exception {
+        CountDownLatch received = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        this.handler = exchange -> {
+            received.countDown();
+            await(release);
+            respond(exchange, 200, "{\"access_token\": \"abc\", \"expires_in\": 3600}");
+        };
+
+        int callers = 32;
+        ExecutorService executor = Executors.newFixedThreadPool(callers);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<CompletableFuture<String>>> calls = new ArrayList<>();
+
+        for (int i = 0; i < callers; i++) {
+            calls.add(executor.submit(() -> {
+                start.await();
+                return this.api.getAccessToken();
+            }));
+        }
+
+        start.countDown();
+        assertTrue(received.await(5, TimeUnit.SECONDS));
+
+        List<CompletableFuture<String>> tokens = new ArrayList<>();
+
+        for (Future<CompletableFuture<String>> call : calls) {
+            tokens.add(call.get(5, TimeUnit.SECONDS));
+        }
+
+        release.countDown();
+
+        for (CompletableFuture<String> token : tokens) {
+            assertEquals("Bearer abc", token.get(5, TimeUnit.SECONDS));
+        }
+
+        assertEquals(1, this.requests.get());
+        executor.shutdown();
+    }
+
+    @Test
+    void successStoresTheToken() throws Exception {
+        this.handler = exchange -> respond(exchange, 200, "{\"access_token\": \"abc\", \"expires_in\": 3600}");
+
+        assertEquals("Bearer abc", this.api.getAccessToken().get(5, TimeUnit.SECONDS));
+        assertEquals("Bearer abc", this.config.getSpotifyAccessToken());
+        assertTrue(this.api.getAccessTokenExpiresAt() > System.currentTimeMillis());
+
+        // the valid token is reused without another request
+        assertEquals("Bearer abc", this.api.getAccessToken().get(5, TimeUnit.SECONDS));
+        assertEquals(1, this.requests.get());
+    }
+
+    @Test
+    void failureIsReportedAndReleasesTheRefresh() throws Exception {
+        this.handler = exchange -> respond(exchange, 400, "{\"error\": \"invalid_grant\"}");
+
+        ExecutionException exception = assertThrows(ExecutionException.class,
+                () -> this.api.getAccessToken().get(5, TimeUnit.SECONDS));
+        assertTrue(exception.getCause().getMessage().contains("400"));
+
+        this.handler = exchange -> respond(exchange, 200, "{\"access_token\": \"abc\", \"expires_in\": 3600}");
+
+        assertEquals("Bearer abc", this.api.getAccessToken().get(5, TimeUnit.SECONDS));
+        assertEquals(2, this.requests.get());
+    }
+
+    @Test
+    void timeoutIsReportedAndReleasesTheRefresh() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+
+        // the timed out request never gets a response, so it cannot overwrite the new token or save the config
+        // while the test directory is deleted
+        this.handler = exchange -> {
+            await(release);
+            exchange.close();
+        };
+
+        ExecutionException exception = assertThrows(ExecutionException.class,
+                () -> this.api.getAccessToken().get(5, TimeUnit.SECONDS));
+        assertInstanceOf(TimeoutException.class, exception.getCause());
+
+        this.handler = exchange -> respond(exchange, 200, "{\"access_token\": \"abc\", \"expires_in\": 3600}");
+
+        assertEquals("Bearer abc", this.api.getAccessToken().get(5, TimeUnit.SECONDS));
+        assertEquals(2, this.requests.get());
+        release.countDown();
+    }
+
+    private static void respond(HttpExchange exchange, int code, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(code, bytes.length);
+
+        try (OutputStream stream = exchange.getResponseBody()) {
+            stream.write(bytes);
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @FunctionalInterface
+    private interface Handler {
+
+        void handle(HttpExchange exchange) throws IOException;
+    }
+}
@@ -0,0 +1,85 @@
+package tv.banko.songrequest.spotify;
+
+import okhttp3.Response;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import tv.banko.songrequest.config.ConfigSnapshot;
+import tv.banko.songrequest.util.CircuitBreaker;
+import tv.banko.songrequest.util.RetryPolicy;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests that {@link SpotifyRequestScheduler} drops the requests the caller gave up on before they were sent.
+ */
+class SpotifyRequestSchedulerTest {
+
+    private static final int BUCKET_CAPACITY = 20;
+    private static final long REFILL_MILLIS = 500;
+
+    private ScheduledExecutorService executor;
+    private SpotifyRequestScheduler scheduler;
+    private AtomicInteger dispatched;
+
+    @BeforeEach
+    void setUp() {
+        this.executor = Executors.newSingleThreadScheduledExecutor();
+        this.scheduler = new SpotifyRequestScheduler(this.executor);
+        this.dispatched = new AtomicInteger();
+
+        // take every token, so the following requests wait in the queue
+        for (int i = 0; i < BUCKET_CAPACITY; i++) {
+            this.submit();
+        }
+
+        assertEquals(BUCKET_CAPACITY, this.dispatched.get());
+    }
+
+    @AfterEach
+    void tearDown() {
+        this.executor.shutdownNow();
+    }
+
+    @Test
+    void canceledQueuedRequestIsNotSent() throws InterruptedException {
+        CompletableFuture<Response> canceled = this.submit();
+        CompletableFuture<Response> kept = this.submit();
+        assertEquals(2, this.scheduler.getQueueDepth());
+
+        canceled.cancel(false);
+        Thread.sleep(REFILL_MILLIS);
+
+        assertFalse(kept.isDone());
+        assertEquals(BUCKET_CAPACITY + 1, this.dispatched.get());
+        assertEquals(0, this.scheduler.getQueueDepth());
+    }
+
+    @Test
+    void cancelReachesTheQueueThroughTheRetryPolicyAndTheCircuitBreaker() throws InterruptedException {
+        ConfigSnapshot.HttpConfig config = new ConfigSnapshot.HttpConfig(3, 250, 5000, 5, 30000);
+        CircuitBreaker breaker = new CircuitBreaker("test", () -> config);
+        RetryPolicy retryPolicy = new RetryPolicy(this.executor, () -> config);
+
+        CompletableFuture<Response> result = retryPolicy.execute(true, () -> breaker.execute(this::submit));
+        assertEquals(1, this.scheduler.getQueueDepth());
+
+        result.cancel(false);
+        Thread.sleep(REFILL_MILLIS);
+
+        assertEquals(BUCKET_CAPACITY, this.dispatched.get());
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    private CompletableFuture<Response> submit() {
+        return this.scheduler.submit(SpotifyRequestScheduler.Priority.HIGH, () -> {
+            this.dispatched.incrementAndGet();
+            return new CompletableFuture<>();
+        });
+    }
+}
@@ -0,0 +1,70 @@
+package tv.banko.songrequest.spotify;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SpotifyResponseDecoderTest {
+
+    @Test
+    void queueSkipsLocalFiles() throws IOException {
+        String response = """
+                {
+                    "currently_playing": {"id": "1", "name": "Playing", "artists": [{"name": "A"}]},
+                    "queue": [
+                        {"id": null, "name": "Local file", "artists": [{"name": null}], "is_local": true},
+                        {"id": "2", "name": "Second", "artists": [{"name": "B"}, {"name": "C"}]},
+                        null,
+                        {"id": "3", "name": "Third", "artists": []}
+                    ]
+                }
+                """;
+
+        List<String> queue = SpotifyResponseDecoder.decodeQueue(new StringReader(response), 5);
+
+        assertEquals(List.of("\"Second\" - B, C", "\"Third\" - "), queue);
+    }
+
+    @Test
+    void queueStopsAtTheLimit() throws IOException {
+        String response = """
+                {"queue": [
+                    {"id": "1", "name": "First", "artists": [{"name": "A"}]},
+                    {"id": "2", "name": "Second", "artists": [{"name": "B"}]}
+                ]}
+                """;
+
+        assertEquals(List.of("\"First\" - A"), SpotifyResponseDecoder.decodeQueue(new StringReader(response), 1));
+    }
+
+    @Test
+    void searchReturnsTheFirstTrackWithAnId() throws IOException {
+        String response = """
+                {"tracks": {"items": [
+                    {"id": null, "name": "Local file", "artists": []},
+                    {"id": "abc", "name": "Song", "artists": [{"name": "Artist"}]}
+                ]}}
+                """;
+
+        TrackInfo track = SpotifyResponseDecoder.decodeSearch(new StringReader(response));
+
+        assertNotNull(track);
+        assertEquals("spotify:track:abc", track.uri());
+        assertEquals(List.of("Artist"), track.artists());
+    }
+
+    @Test
+    void searchWithoutItemsReturnsNull() throws IOException {
+        assertNull(SpotifyResponseDecoder.decodeSearch(new StringReader("{\"tracks\": {\"items\": []}}")));
+    }
+
+    @Test
+    void trackWithoutIdFails() {
+        assertThrows(IOException.class, () -> SpotifyResponseDecoder.decodeTrack(
+                new StringReader("{\"id\": null, \"name\": \"Local file\", \"artists\": []}")));
+    }
+}
@@ -0,0 +1,99 @@
+package tv.banko.songrequest.twitch;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import tv.banko.songrequest.config.ConfigSnapshot;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the rate limit of {@link ChatSender} with a manual clock.
+ */
+class ChatSenderTest {
+
+    private static final long MAX_DELAY_MILLIS = TimeUnit.MINUTES.toMillis(10);
+    private static final String TEXT = "x".repeat(300);
+
+    private ScheduledExecutorService scheduler;
+    private AtomicLong clock;
+    private AtomicReference<ConfigSnapshot.ChatConfig> config;
+    private List<String> sent;
+    private ChatSender sender;
+
+    @BeforeEach
+    void setUp() {
+        this.scheduler = Executors.newSingleThreadScheduledExecutor();
+        this.clock = new AtomicLong(1_000_000);
+        this.config = new AtomicReference<>(new ConfigSnapshot.ChatConfig("user", MAX_DELAY_MILLIS));
+        this.sent = new CopyOnWriteArrayList<>();
+        this.sender = new ChatSender(this.scheduler, this.config::get, this.sent::add, this.clock::get);
+    }
+
+    @AfterEach
+    void tearDown() {
+        this.scheduler.shutdownNow();
+    }
+
+    @Test
+    void noPeriodHoldsMoreMessagesThanTheLimit() {
+        int limit = ChatSender.RateClass.USER.getMessages();
+
+        this.send(limit + 5);
+        assertEquals(limit, this.sent.size());
+        assertEquals(5, this.sender.getQueueDepth());
+
+        this.advance(ChatSender.RateClass.PERIOD.toMillis() - 1);
+        this.send(1);
+        assertEquals(limit, this.sent.size());
+
+        this.advance(1);
+        this.send(1);
+        assertEquals(limit + 7, this.sent.size());
+    }
+
+    @Test
+    void sendsAreSpreadOverTheSlidingPeriod() {
+        int limit = ChatSender.RateClass.USER.getMessages();
+
+        this.send(limit / 2);
+        this.advance(ChatSender.RateClass.PERIOD.toMillis() / 2);
+        this.send(limit);
+        assertEquals(limit, this.sent.size());
+
+        // only the messages of the first half left the period
+        this.advance(ChatSender.RateClass.PERIOD.toMillis() / 2);
+        this.send(limit);
+        assertEquals(limit + limit / 2, this.sent.size());
+    }
+
+    @Test
+    void rateClassIsReadBeforeEveryMessage() {
+        this.config.set(new ConfigSnapshot.ChatConfig("moderator", MAX_DELAY_MILLIS));
+        this.send(50);
+        assertEquals(50, this.sent.size());
+
+        this.config.set(new ConfigSnapshot.ChatConfig("user", MAX_DELAY_MILLIS));
+        this.send(1);
+        assertEquals(50, this.sent.size());
+        assertEquals(1, this.sender.getQueueDepth());
+    }
+
+    private void send(int messages) {
+        for (int i = 0; i < messages; i++) {
+            this.sender.send(List.of(), TEXT);
+        }
+    }
+
+    private void advance(long millis) {
+        this.clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(millis));
+    }
+}
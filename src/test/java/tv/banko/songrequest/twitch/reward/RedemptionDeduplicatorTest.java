@@ -0,0 +1,78 @@
+package tv.banko.songrequest.twitch.reward;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the expiry of {@link RedemptionDeduplicator} with a manual clock.
+ */
+class RedemptionDeduplicatorTest {
+
+    private static final long TTL_MILLIS = 1000;
+
+    private AtomicLong clock;
+    private RedemptionDeduplicator deduplicator;
+
+    @BeforeEach
+    void setUp() {
+        this.clock = new AtomicLong(1_000_000);
+        this.deduplicator = new RedemptionDeduplicator(TTL_MILLIS, 3, this.clock::get);
+    }
+
+    @Test
+    void duplicatesAreDropped() {
+        assertTrue(this.deduplicator.firstDelivery("a"));
+        assertFalse(this.deduplicator.firstDelivery("a"));
+        assertTrue(this.deduplicator.firstDelivery("b"));
+
+        assertEquals(3, this.deduplicator.getReceived());
+        assertEquals(1, this.deduplicator.getDuplicates());
+        assertEquals(1 / 3d, this.deduplicator.getDuplicateRate(), 1e-9);
+    }
+
+    @Test
+    void idsExpireInTheOrderTheyWereReceived() {
+        this.deduplicator.firstDelivery("a");
+        this.advance(TTL_MILLIS / 2);
+        this.deduplicator.firstDelivery("b");
+
+        this.advance(TTL_MILLIS / 2 + 1);
+        assertTrue(this.deduplicator.firstDelivery("a"));
+        assertFalse(this.deduplicator.firstDelivery("b"));
+
+        this.advance(TTL_MILLIS / 2);
+        assertTrue(this.deduplicator.firstDelivery("b"));
+        assertFalse(this.deduplicator.firstDelivery("a"));
+    }
+
+    @Test
+    void oldestIdsAreForgottenWhenFull() {
+        this.deduplicator.firstDelivery("a");
+        this.deduplicator.firstDelivery("b");
+        this.deduplicator.firstDelivery("c");
+        this.deduplicator.firstDelivery("d");
+
+        assertEquals(3, this.deduplicator.getSize());
+        assertTrue(this.deduplicator.firstDelivery("a"));
+        assertFalse(this.deduplicator.firstDelivery("d"));
+    }
+
+    @Test
+    void duplicateDoesNotExtendTheExpiry() {
+        this.deduplicator.firstDelivery("a");
+        this.advance(TTL_MILLIS - 1);
+        assertFalse(this.deduplicator.firstDelivery("a"));
+
+        this.advance(2);
+        assertTrue(this.deduplicator.firstDelivery("a"));
+    }
+
+    private void advance(long millis) {
+        this.clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(millis));
+    }
+}
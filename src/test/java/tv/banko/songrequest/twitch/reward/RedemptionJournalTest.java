@@ -0,0 +1,83 @@
+package tv.banko.songrequest.twitch.reward;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests that {@link RedemptionJournal} recovers the unfinished redemptions of a previous run.
+ */
+class RedemptionJournalTest {
+
+    private static final long CLOSE_TIMEOUT_MILLIS = 5000;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void unfinishedRedemptionsAreReplayed() throws IOException {
+        RedemptionJournal journal = new RedemptionJournal(this.directory);
+        assertEquals(List.of(), journal.open());
+
+        journal.append(RedemptionJournal.Event.RECEIVED, "a", "reward", "");
+        journal.append(RedemptionJournal.Event.RECEIVED, "b", "reward", "");
+        journal.append(RedemptionJournal.Event.QUEUED, "b", "reward", "");
+        journal.append(RedemptionJournal.Event.RECEIVED, "c", "reward", "");
+        journal.append(RedemptionJournal.Event.STATUS_SENT, "c", "reward", "FULFILLED");
+        journal.close(CLOSE_TIMEOUT_MILLIS);
+
+        List<RedemptionJournal.Entry> entries = new RedemptionJournal(this.directory).open();
+
+        assertEquals(List.of("a", "b"), entries.stream().map(RedemptionJournal.Entry::redemptionId).toList());
+        assertEquals(RedemptionJournal.Event.RECEIVED, entries.get(0).event());
+        assertEquals(RedemptionJournal.Event.QUEUED, entries.get(1).event());
+    }
+
+    @Test
+    void eventsAppendedBeforeOpeningAreWritten() throws IOException {
+        RedemptionJournal journal = new RedemptionJournal(this.directory);
+        journal.append(RedemptionJournal.Event.RECEIVED, "a", "reward", "");
+        assertEquals(1, journal.getPending());
+
+        journal.open();
+        journal.close(CLOSE_TIMEOUT_MILLIS);
+
+        assertEquals(0, journal.getPending());
+        assertEquals(1, journal.getAppended());
+        assertEquals(1, new RedemptionJournal(this.directory).open().size());
+    }
+
+    @Test
+    void eventsWaitingForTheJournalAreCapped() {
+        RedemptionJournal journal = new RedemptionJournal(this.directory);
+
+        for (int i = 0; i < 20000; i++) {
+            journal.append(RedemptionJournal.Event.RECEIVED, "redemption-" + i, "reward", "");
+        }
+
+        assertEquals(10000, journal.getPending());
+        assertEquals(10000, journal.getDropped());
+    }
+
+    @Test
+    void failedOpenDisablesTheJournal() throws IOException {
+        Path file = this.directory.resolve("file");
+        Files.writeString(file, "");
+
+        RedemptionJournal journal = new RedemptionJournal(file);
+        journal.append(RedemptionJournal.Event.RECEIVED, "a", "reward", "");
+
+        assertThrows(IOException.class, journal::open);
+        assertTrue(journal.isFailed());
+        assertEquals(0, journal.getPending());
+
+        journal.append(RedemptionJournal.Event.RECEIVED, "b", "reward", "");
+        assertEquals(0, journal.getPending());
+    }
+}
@@ -0,0 +1,91 @@
+package tv.banko.songrequest.twitch.reward;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import tv.banko.songrequest.config.ConfigSnapshot;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the admission of {@link RedemptionQueue} while it is full.
+ */
+class RedemptionQueueTest {
+
+    private Map<String, Throwable> completed;
+    private List<CompletableFuture<Void>> handling;
+
+    @BeforeEach
+    void setUp() {
+        this.completed = new ConcurrentHashMap<>();
+        this.handling = new ArrayList<>();
+    }
+
+    @Test
+    void overflowIsCanceled() {
+        RedemptionQueue queue = this.queue(new ConfigSnapshot.QueueConfig(1, 1, "cancel", 10));
+
+        this.submit(queue, "1", "2", "3");
+
+        assertEquals(1, queue.getRunning());
+        assertEquals(1, queue.getDepth());
+        assertEquals(0, queue.getDeferred());
+        assertEquals(1, queue.getCanceled());
+        assertInstanceOf(RejectedExecutionException.class, this.completed.get("3"));
+    }
+
+    @Test
+    void deferredRedemptionsAreCappedAndHandledLater() {
+        RedemptionQueue queue = this.queue(new ConfigSnapshot.QueueConfig(1, 1, "defer", 2));
+
+        this.submit(queue, "1", "2", "3", "4", "5");
+
+        assertEquals(1, queue.getDepth());
+        assertEquals(2, queue.getDeferred());
+        assertEquals(1, queue.getCanceled());
+        assertInstanceOf(RejectedExecutionException.class, this.completed.get("5"));
+
+        for (int i = 0; i < 4; i++) {
+            this.handling.get(i).complete(null);
+        }
+
+        assertEquals(0, queue.getDepth());
+        assertEquals(0, queue.getDeferred());
+        assertEquals(0, queue.getRunning());
+
+        for (String id : List.of("1", "2", "3", "4")) {
+            assertInstanceOf(Completed.class, this.completed.get(id));
+        }
+    }
+
+    private RedemptionQueue queue(ConfigSnapshot.QueueConfig config) {
+        return new RedemptionQueue(Runnable::run, () -> config,
+                (redemption, throwable) -> this.completed.put(redemption.id(),
+                        throwable != null ? throwable : new Completed()));
+    }
+
+    private void submit(RedemptionQueue queue, String... ids) {
+        for (String id : ids) {
+            CompletableFuture<Void> future = new CompletableFuture<>();
+            this.handling.add(future);
+
+            queue.submit(new Redemption(id, "reward", "Reward", "user-" + id, "user" + id, "User " + id, "",
+                    Instant.now()), redemption -> future);
+        }
+    }
+
+    /**
+     * Marks a redemption completed without a failure, since the map does not hold null values.
+     */
+    private static class Completed extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+    }
+}
@@ -0,0 +1,109 @@
+package tv.banko.songrequest.twitch.reward;
+
+import com.github.twitch4j.eventsub.domain.RedemptionStatus;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests how {@link RedemptionStatusBatcher} handles failed and partial batches.
+ */
+class RedemptionStatusBatcherTest {
+
+    private ScheduledExecutorService scheduler;
+    private ExecutorService executor;
+    private List<List<String>> calls;
+
+    @BeforeEach
+    void setUp() {
+        this.scheduler = Executors.newSingleThreadScheduledExecutor();
+        this.executor = Executors.newCachedThreadPool();
+        this.calls = new CopyOnWriteArrayList<>();
+    }
+
+    @AfterEach
+    void tearDown() {
+        this.scheduler.shutdownNow();
+        this.executor.shutdownNow();
+    }
+
+    @Test
+    void failedCallIsRetriedAsABatch() throws Exception {
+        RedemptionStatusBatcher batcher = this.batcher((rewardId, ids, status) -> {
+            if (this.calls.size() == 1) {
+                throw new IllegalStateException("unavailable");
+            }
+
+            return ids;
+        });
+
+        List<CompletableFuture<Void>> futures = this.update(batcher, "a", "b", "c");
+        CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).get(5, TimeUnit.SECONDS);
+
+        assertEquals(List.of(List.of("a", "b", "c"), List.of("a", "b", "c")), this.calls);
+        assertEquals(1, batcher.getBatchRetries());
+        assertEquals(0, batcher.getRetries());
+    }
+
+    @Test
+    void batchFailsAfterTheLastAttempt() {
+        RedemptionStatusBatcher batcher = this.batcher((rewardId, ids, status) -> {
+            throw new IllegalStateException("unavailable");
+        });
+
+        List<CompletableFuture<Void>> futures = this.update(batcher, "a", "b");
+
+        for (CompletableFuture<Void> future : futures) {
+            assertThrows(ExecutionException.class, () -> future.get(5, TimeUnit.SECONDS));
+        }
+
+        assertEquals(RedemptionStatusBatcher.MAX_ATTEMPTS, this.calls.size());
+        assertTrue(this.calls.stream().allMatch(ids -> ids.size() == 2));
+        assertEquals(2, batcher.getFailures());
+    }
+
+    @Test
+    void missingRedemptionsAreRetriedOneByOne() throws Exception {
+        RedemptionStatusBatcher batcher = this.batcher((rewardId, ids, status) -> {
+            if (ids.size() > 1) {
+                return ids.stream().filter(id -> !id.equals("b")).toList();
+            }
+
+            return ids.equals(List.of("b")) ? List.of() : ids;
+        });
+
+        List<CompletableFuture<Void>> futures = this.update(batcher, "a", "b", "c");
+
+        futures.get(0).get(5, TimeUnit.SECONDS);
+        futures.get(2).get(5, TimeUnit.SECONDS);
+        assertThrows(ExecutionException.class, () -> futures.get(1).get(5, TimeUnit.SECONDS));
+
+        assertEquals(List.of(List.of("a", "b", "c"), List.of("b")), this.calls);
+        assertEquals(1, batcher.getRetries());
+        assertEquals(0, batcher.getBatchRetries());
+        assertEquals(1, batcher.getFailures());
+    }
+
+    private RedemptionStatusBatcher batcher(RedemptionStatusBatcher.Updater updater) {
+        return new RedemptionStatusBatcher(this.scheduler, this.executor, (rewardId, ids, status) -> {
+            this.calls.add(ids);
+            return updater.update(rewardId, ids, status);
+        }, 10);
+    }
+
+    private List<CompletableFuture<Void>> update(RedemptionStatusBatcher batcher, String... ids) {
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+
+        for (String id : ids) {
+            futures.add(batcher.update("reward", id, RedemptionStatus.FULFILLED));
+        }
+
+        return futures;
+    }
+}
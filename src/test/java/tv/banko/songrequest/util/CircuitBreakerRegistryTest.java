@@ -0,0 +1,50 @@
+package tv.banko.songrequest.util;
+
+import org.junit.jupiter.api.Test;
+import tv.banko.songrequest.config.ConfigSnapshot;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests how {@link CircuitBreakerRegistry} identifies endpoints.
+ */
+class CircuitBreakerRegistryTest {
+
+    @Test
+    void idsAreFolded() {
+        assertEquals("GET api.spotify.com/v1/tracks/{id}", CircuitBreakerRegistry.getEndpoint(HTTPMethod.GET,
+                "https://api.spotify.com/v1/tracks/4uLU6hMCjMI75M1A2tKUQC"));
+        assertEquals("POST api.spotify.com/v1/playlists/{id}/tracks", CircuitBreakerRegistry.getEndpoint(HTTPMethod.POST,
+                "https://api.spotify.com/v1/playlists/37i9dQZF1DXcBWIGoYBM5M/tracks"));
+        assertEquals("GET api.twitch.tv/helix/users/{id}", CircuitBreakerRegistry.getEndpoint(HTTPMethod.GET,
+                "https://api.twitch.tv/helix/users/123456"));
+    }
+
+    @Test
+    void queryIsIgnored() {
+        assertEquals("POST api.spotify.com/v1/me/player/queue", CircuitBreakerRegistry.getEndpoint(HTTPMethod.POST,
+                "https://api.spotify.com/v1/me/player/queue?uri=spotify:track:4uLU6hMCjMI75M1A2tKUQC"));
+        assertEquals("GET api.spotify.com/v1/search", CircuitBreakerRegistry.getEndpoint(HTTPMethod.GET,
+                "https://api.spotify.com/v1/search?q=never gonna give you up&type=track"));
+    }
+
+    @Test
+    void wordsAreKept() {
+        assertEquals("PUT api.spotify.com/v1/me/player/next", CircuitBreakerRegistry.getEndpoint(HTTPMethod.PUT,
+                "https://api.spotify.com/v1/me/player/next"));
+        assertEquals("GET api.spotify.com/v1/me/player/currently-playing", CircuitBreakerRegistry.getEndpoint(
+                HTTPMethod.GET, "https://api.spotify.com/v1/me/player/currently-playing"));
+    }
+
+    @Test
+    void endpointsShareTheirBreaker() {
+        CircuitBreakerRegistry registry = new CircuitBreakerRegistry(
+                () -> new ConfigSnapshot.HttpConfig(3, 250, 5000, 5, 30000), () -> 0);
+
+        CircuitBreaker breaker = registry.get(HTTPMethod.GET, "https://api.spotify.com/v1/tracks/4uLU6hMCjMI75M1A2tKUQC");
+
+        assertSame(breaker, registry.get(HTTPMethod.GET, "https://api.spotify.com/v1/tracks/11dFghVXANMlKmJXsNCbNl"));
+        assertNotSame(breaker, registry.get(HTTPMethod.PUT, "https://api.spotify.com/v1/tracks/11dFghVXANMlKmJXsNCbNl"));
+        assertEquals(2, registry.getAll().size());
+    }
+}
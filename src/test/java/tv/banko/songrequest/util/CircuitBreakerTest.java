@@ -0,0 +1,153 @@
+package tv.banko.songrequest.util;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import tv.banko.songrequest.config.ConfigSnapshot;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the state transitions of {@link CircuitBreaker} with a manual clock.
+ */
+class CircuitBreakerTest {
+
+    private static final int THRESHOLD = 3;
+    private static final long OPEN_MILLIS = 1000;
+
+    private AtomicLong clock;
+    private AtomicInteger calls;
+    private CircuitBreaker breaker;
+
+    @BeforeEach
+    void setUp() {
+        this.clock = new AtomicLong(1_000_000);
+        this.calls = new AtomicInteger();
+        this.breaker = new CircuitBreaker("test",
+                () -> new ConfigSnapshot.HttpConfig(3, 250, 5000, THRESHOLD, OPEN_MILLIS), this.clock::get);
+    }
+
+    @Test
+    void opensAfterConsecutiveFailures() {
+        for (int i = 0; i < THRESHOLD - 1; i++) {
+            this.fail();
+        }
+
+        assertEquals(CircuitBreaker.State.CLOSED, this.breaker.getState());
+        this.fail();
+        assertEquals(CircuitBreaker.State.OPEN, this.breaker.getState());
+
+        CompletableFuture<Object> rejected = this.call(CompletableFuture.completedFuture("ok"));
+        assertTrue(rejected.isCompletedExceptionally());
+        assertInstanceOf(CircuitBreakerOpenException.class, rejected.exceptionNow());
+        assertEquals(THRESHOLD, this.calls.get());
+        assertEquals(1, this.breaker.getRejected());
+    }
+
+    @Test
+    void successResetsTheFailures() {
+        this.fail();
+        this.fail();
+        this.call(CompletableFuture.completedFuture("ok"));
+        this.fail();
+        this.fail();
+
+        assertEquals(CircuitBreaker.State.CLOSED, this.breaker.getState());
+    }
+
+    @Test
+    void timeoutsCountAsFailures() {
+        for (int i = 0; i < THRESHOLD; i++) {
+            this.call(CompletableFuture.failedFuture(new TimeoutException()));
+        }
+
+        assertEquals(CircuitBreaker.State.OPEN, this.breaker.getState());
+    }
+
+    @Test
+    void cancelReachesTheCall() {
+        CompletableFuture<Object> call = new CompletableFuture<>();
+        this.call(call).cancel(false);
+
+        assertTrue(call.isCancelled());
+        assertEquals(CircuitBreaker.State.CLOSED, this.breaker.getState());
+    }
+
+    @Test
+    void otherFailuresDoNotCount() {
+        for (int i = 0; i < THRESHOLD; i++) {
+            this.call(CompletableFuture.failedFuture(new IllegalStateException("rejected")));
+        }
+
+        assertEquals(CircuitBreaker.State.CLOSED, this.breaker.getState());
+    }
+
+    @Test
+    void halfOpenLetsASingleProbeThrough() {
+        this.open();
+
+        this.clock.addAndGet(OPEN_MILLIS - 1);
+        assertTrue(this.call(CompletableFuture.completedFuture("ok")).isCompletedExceptionally());
+
+        this.clock.addAndGet(1);
+        CompletableFuture<Object> probe = new CompletableFuture<>();
+        assertFalse(this.call(probe).isDone());
+        assertEquals(CircuitBreaker.State.HALF_OPEN, this.breaker.getState());
+        assertTrue(this.call(CompletableFuture.completedFuture("ok")).isCompletedExceptionally());
+
+        probe.complete("ok");
+        assertEquals(CircuitBreaker.State.CLOSED, this.breaker.getState());
+        assertFalse(this.call(CompletableFuture.completedFuture("ok")).isCompletedExceptionally());
+    }
+
+    @Test
+    void failedProbeOpensTheCircuitAgain() {
+        this.open();
+
+        this.clock.addAndGet(OPEN_MILLIS);
+        this.fail();
+        assertEquals(CircuitBreaker.State.OPEN, this.breaker.getState());
+
+        this.clock.addAndGet(OPEN_MILLIS - 1);
+        assertTrue(this.call(CompletableFuture.completedFuture("ok")).isCompletedExceptionally());
+        this.clock.addAndGet(1);
+        assertFalse(this.call(CompletableFuture.completedFuture("ok")).isCompletedExceptionally());
+    }
+
+    @Test
+    void canceledProbeLetsTheNextProbeThrough() {
+        this.open();
+        this.clock.addAndGet(OPEN_MILLIS);
+
+        CompletableFuture<Object> probe = new CompletableFuture<>();
+        this.call(probe);
+        probe.cancel(false);
+
+        assertEquals(CircuitBreaker.State.HALF_OPEN, this.breaker.getState());
+        assertFalse(this.call(CompletableFuture.completedFuture("ok")).isCompletedExceptionally());
+    }
+
+    private void open() {
+        for (int i = 0; i < THRESHOLD; i++) {
+            this.fail();
+        }
+
+        assertEquals(CircuitBreaker.State.OPEN, this.breaker.getState());
+    }
+
+    private void fail() {
+        this.call(CompletableFuture.failedFuture(new IOException("failed")));
+    }
+
+    private CompletableFuture<Object> call(CompletableFuture<Object> result) {
+        return this.breaker.execute(() -> {
+            this.calls.incrementAndGet();
+            return result;
+        });
+    }
+}
@@ -0,0 +1,102 @@
+package tv.banko.songrequest.util;
+
+import com.sun.net.httpserver.HttpServer;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests that {@link HTTPClientFactory#enqueue(OkHttpClient, Request)} cancels calls nobody waits for anymore.
+ */
+class HTTPClientFactoryTest {
+
+    private HttpServer server;
+    private CountDownLatch received;
+    private CountDownLatch release;
+    private ExecutorService executor;
+    private OkHttpClient client;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        this.received = new CountDownLatch(1);
+        this.release = new CountDownLatch(1);
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        this.server.setExecutor(Executors.newCachedThreadPool());
+        this.server.createContext("/", exchange -> {
+            this.received.countDown();
+
+            try {
+                this.release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException ignored) {
+            }
+
+            exchange.sendResponseHeaders(204, -1);
+            exchange.close();
+        });
+        this.server.start();
+
+        this.executor = Executors.newCachedThreadPool();
+        this.client = HTTPClientFactory.create(this.executor);
+    }
+
+    @AfterEach
+    void tearDown() {
+        this.release.countDown();
+        this.server.stop(0);
+        this.executor.shutdownNow();
+    }
+
+    @Test
+    void timeoutCancelsTheCall() throws Exception {
+        CompletableFuture<Response> future = HTTPClientFactory.enqueue(this.client, this.request())
+                .orTimeout(200, TimeUnit.MILLISECONDS);
+
+        assertTrue(this.received.await(5, TimeUnit.SECONDS));
+        ExecutionException exception = assertThrows(ExecutionException.class, () -> future.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(TimeoutException.class, exception.getCause());
+        assertEquals(0, this.awaitRunningCalls());
+    }
+
+    @Test
+    void cancelCancelsTheCall() throws Exception {
+        CompletableFuture<Response> future = HTTPClientFactory.enqueue(this.client, this.request());
+
+        assertTrue(this.received.await(5, TimeUnit.SECONDS));
+        future.cancel(false);
+        assertEquals(0, this.awaitRunningCalls());
+    }
+
+    @Test
+    void responseCompletesTheFuture() throws Exception {
+        this.release.countDown();
+
+        try (Response response = HTTPClientFactory.enqueue(this.client, this.request()).get(5, TimeUnit.SECONDS)) {
+            assertEquals(204, response.code());
+        }
+    }
+
+    private Request request() {
+        return new Request.Builder()
+                .url("http://127.0.0.1:" + this.server.getAddress().getPort() + "/")
+                .build();
+    }
+
+    private int awaitRunningCalls() throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+
+        while (this.client.dispatcher().runningCallsCount() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+
+        return this.client.dispatcher().runningCallsCount();
+    }
+}
@@ -0,0 +1,101 @@
+package tv.banko.songrequest.util;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import tv.banko.songrequest.config.ConfigSnapshot;
+
+import java.io.IOException;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the attempts and the backoff of {@link RetryPolicy}.
+ */
+class RetryPolicyTest {
+
+    private static final ConfigSnapshot.HttpConfig CONFIG = new ConfigSnapshot.HttpConfig(3, 1, 4, 5, 1000);
+
+    private ScheduledExecutorService scheduler;
+    private RetryPolicy policy;
+    private AtomicInteger attempts;
+
+    @BeforeEach
+    void setUp() {
+        this.scheduler = Executors.newSingleThreadScheduledExecutor();
+        this.policy = new RetryPolicy(this.scheduler, () -> CONFIG);
+        this.attempts = new AtomicInteger();
+    }
+
+    @AfterEach
+    void tearDown() {
+        this.scheduler.shutdownNow();
+    }
+
+    @Test
+    void ioFailuresAreRetriedUntilSuccess() throws Exception {
+        CompletableFuture<String> result = this.policy.execute(true, () -> this.attempts.incrementAndGet() < 3
+                ? CompletableFuture.failedFuture(new IOException("failed"))
+                : CompletableFuture.completedFuture("ok"));
+
+        assertEquals("ok", result.get(5, TimeUnit.SECONDS));
+        assertEquals(3, this.attempts.get());
+        assertEquals(2, this.policy.getRetries());
+    }
+
+    @Test
+    void lastFailureIsReportedAfterMaxAttempts() {
+        CompletableFuture<String> result = this.policy.execute(true, () -> {
+            this.attempts.incrementAndGet();
+            return CompletableFuture.failedFuture(new IOException("failed"));
+        });
+
+        ExecutionException exception = assertThrows(ExecutionException.class, () -> result.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(IOException.class, exception.getCause());
+        assertEquals(CONFIG.retryAttempts(), this.attempts.get());
+    }
+
+    @Test
+    void nonIdempotentCallsAreExecutedOnce() {
+        CompletableFuture<String> result = this.policy.execute(false, () -> {
+            this.attempts.incrementAndGet();
+            return CompletableFuture.failedFuture(new IOException("failed"));
+        });
+
+        assertThrows(ExecutionException.class, () -> result.get(5, TimeUnit.SECONDS));
+        assertEquals(1, this.attempts.get());
+        assertEquals(0, this.policy.getRetries());
+    }
+
+    @Test
+    void otherFailuresAreNotRetried() {
+        CompletableFuture<String> result = this.policy.execute(true, () -> {
+            this.attempts.incrementAndGet();
+            throw new IllegalStateException("failed");
+        });
+
+        ExecutionException exception = assertThrows(ExecutionException.class, () -> result.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(IllegalStateException.class, exception.getCause());
+        assertEquals(1, this.attempts.get());
+    }
+
+    @Test
+    void delayIsJitteredWithinTheCappedBackoff() {
+        RetryPolicy policy = new RetryPolicy(this.scheduler,
+                () -> new ConfigSnapshot.HttpConfig(3, 100, 1000, 5, 1000));
+
+        for (int i = 0; i < 100; i++) {
+            assertBetween(50, 100, policy.getDelayMillis(1));
+            assertBetween(100, 200, policy.getDelayMillis(2));
+            assertBetween(200, 400, policy.getDelayMillis(3));
+            assertBetween(500, 1000, policy.getDelayMillis(5));
+            assertBetween(500, 1000, policy.getDelayMillis(64));
+        }
+    }
+
+    private static void assertBetween(long min, long max, long actual) {
+        assertTrue(actual >= min && actual <= max, actual + " is not between " + min + " and " + max);
+    }
+}
@@ -0,0 +1,73 @@
+package tv.banko.songrequest.util;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the refill of {@link TokenBucket} with a manual clock.
+ */
+class TokenBucketTest {
+
+    private AtomicLong clock;
+    private TokenBucket bucket;
+
+    @BeforeEach
+    void setUp() {
+        this.clock = new AtomicLong(1_000_000);
+        this.bucket = new TokenBucket(10, 2, this.clock::get);
+    }
+
+    @Test
+    void startsFull() {
+        for (int i = 0; i < 10; i++) {
+            assertTrue(this.bucket.tryAcquire());
+        }
+
+        assertFalse(this.bucket.tryAcquire());
+    }
+
+    @Test
+    void refillsContinuously() {
+        this.bucket.drain();
+
+        this.advance(250);
+        assertFalse(this.bucket.tryAcquire());
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(250), this.bucket.getNanosUntilAvailable());
+
+        this.advance(250);
+        assertEquals(0, this.bucket.getNanosUntilAvailable());
+        assertTrue(this.bucket.tryAcquire());
+        assertFalse(this.bucket.tryAcquire());
+    }
+
+    @Test
+    void refillsUpToTheCapacity() {
+        this.bucket.drain();
+        this.advance(TimeUnit.MINUTES.toMillis(10));
+
+        for (int i = 0; i < 10; i++) {
+            assertTrue(this.bucket.tryAcquire());
+        }
+
+        assertFalse(this.bucket.tryAcquire());
+    }
+
+    @Test
+    void drainRemovesTheRefilledTokens() {
+        this.bucket.drain();
+        this.advance(1500);
+        this.bucket.drain();
+
+        assertFalse(this.bucket.tryAcquire());
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(500), this.bucket.getNanosUntilAvailable());
+    }
+
+    private void advance(long millis) {
+        this.clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(millis));
+    }
+}